@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallback;
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallbackPredicate;
+import net.malisis.core.util.callback.CallbackRegistry;
+import net.malisis.core.util.callback.CallbackResult;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Compares the dispatch of the set-block callbacks through the generic {@link CallbackRegistry#processCallbacks(Object...)} path with
+ * the typed {@link SetBlockCallbackRegistry#processCallbacks(Chunk, BlockPos, IBlockState, IBlockState)} one.<br>
+ * Both registries hold the same callbacks, half of them interested in the new block. No callback needs the chunk, so none is given.
+ *
+ * <p>
+ * Run with {@code gradlew jmh}, JMH options can be passed with {@code -PjmhArgs="..."}.
+ *
+ * @author Ordinastie
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBlockCallbackBenchmark
+{
+	@Param({ "1", "4", "16" })
+	public int callbacks;
+
+	private CallbackRegistry<ISetBlockCallback, ISetBlockCallbackPredicate, Void> generic;
+	private SetBlockCallbackRegistry typed;
+
+	private Chunk chunk;
+	private BlockPos pos = new BlockPos(8, 64, 8);
+	private IBlockState oldState;
+	private IBlockState newState;
+
+	@Setup
+	public void setup()
+	{
+		Bootstrap.register();
+		oldState = Blocks.STONE.getDefaultState();
+		newState = Blocks.DIRT.getDefaultState();
+
+		generic = new CallbackRegistry<>();
+		typed = new SetBlockCallbackRegistry();
+		for (int i = 0; i < callbacks; i++)
+		{
+			Block block = i % 2 == 0 ? Blocks.DIRT : Blocks.GLASS;
+			ISetBlockCallback callback = (chunk, pos, oldState, newState) -> CallbackResult.noResult();
+			ISetBlockCallbackPredicate predicate = (chunk, pos, oldState, newState) -> newState.getBlock() == block;
+			CallbackOption<ISetBlockCallbackPredicate> option = CallbackOption.of(predicate);
+			generic.registerCallback(callback, option);
+			typed.registerCallback(callback, option);
+		}
+	}
+
+	@Benchmark
+	public CallbackResult<Void> varargs()
+	{
+		return generic.processCallbacks(chunk, pos, oldState, newState);
+	}
+
+	@Benchmark
+	public CallbackResult<Void> typed()
+	{
+		return typed.processCallbacks(chunk, pos, oldState, newState);
+	}
+}
@@ -27,6 +27,7 @@ package net.malisis.core;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -55,7 +56,7 @@ public class MalisisCommand extends CommandBase
 	/** List of parameters available for this {@link MalisisCommand}. */
 	private Set<String> parameters = Sets.newHashSet();
 	/** List of debug Commands available */
-	private static Map<String, Runnable> debugs = Maps.newHashMap();
+	private static Map<String, Consumer<String[]>> debugs = Maps.newHashMap();
 
 	/**
 	 * Instantiates the command
@@ -69,6 +70,18 @@ public class MalisisCommand extends CommandBase
 	}
 
 	public static void registerDebug(String name, Runnable command)
+	{
+		debugs.put(name, params -> command.run());
+	}
+
+	/**
+	 * Registers a debug command receiving the command parameters.<br>
+	 * The parameters include {@code debug} and the command name.
+	 *
+	 * @param name the name
+	 * @param command the command
+	 */
+	public static void registerDebug(String name, Consumer<String[]> command)
 	{
 		debugs.put(name, command);
 	}
@@ -194,19 +207,19 @@ public class MalisisCommand extends CommandBase
 
 	public void debugCommand(ICommandSender sender, String[] params)
 	{
-		if (params.length != 2)
+		if (params.length < 2)
 		{
 			MalisisCore.message("malisiscore.commands.debugparammissing");
 			return;
 		}
 
-		Runnable runnable = debugs.get(params[1]);
-		if (runnable == null)
+		Consumer<String[]> command = debugs.get(params[1]);
+		if (command == null)
 		{
 			MalisisCore.message("malisiscore.commands.debugnotfound", params[1]);
 			return;
 		}
 
-		runnable.run();
+		command.accept(params);
 	}
 }
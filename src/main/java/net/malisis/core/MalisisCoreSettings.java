@@ -29,6 +29,7 @@ import java.io.File;
 import net.malisis.core.configuration.ConfigurationSetting;
 import net.malisis.core.configuration.Settings;
 import net.malisis.core.configuration.setting.BooleanSetting;
+import net.malisis.core.configuration.setting.IntegerSetting;
 import net.malisis.core.configuration.setting.Setting;
 
 public class MalisisCoreSettings extends Settings
@@ -36,8 +37,17 @@ public class MalisisCoreSettings extends Settings
 	@ConfigurationSetting
 	public static Setting<Boolean> debugTraceFail = new BooleanSetting("malisiscore.config.debugTraceFail", false);
 
+	@ConfigurationSetting
+	public static Setting<Integer> blockDataBytesPerTick = new IntegerSetting("malisiscore.config.blockDataBytesPerTick", 32768);
+
 	public MalisisCoreSettings(File file)
 	{
 		super(file);
 	}
+
+	@Override
+	protected void initSettings()
+	{
+		blockDataBytesPerTick.setComment("malisiscore.config.blockDataBytesPerTick.comment");
+	}
 }
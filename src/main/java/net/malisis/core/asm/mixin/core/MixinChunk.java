@@ -30,7 +30,8 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import net.malisis.core.registry.Registries;
-import net.malisis.core.util.callback.CallbackResult;
+import net.malisis.core.util.blockdata.BlockDataHandler.ChunkData;
+import net.malisis.core.util.blockdata.IBlockDataChunk;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.chunk.Chunk;
@@ -40,26 +41,36 @@ import net.minecraft.world.chunk.Chunk;
  *
  */
 @Mixin(value = Chunk.class, priority = 1001)
-public class MixinChunk
+public class MixinChunk implements IBlockDataChunk
 {
-	private IBlockState oldState;
+	private volatile ChunkData<?>[] blockData;
+
+	@Override
+	public ChunkData<?>[] getBlockData()
+	{
+		return blockData;
+	}
+
+	@Override
+	public void setBlockData(ChunkData<?>[] blockData)
+	{
+		this.blockData = blockData;
+	}
 
 	@Inject(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/state/IBlockState;)Lnet/minecraft/block/state/IBlockState;",
 			at = @At("HEAD"),
 			cancellable = true)
 	private void preSetBlock(BlockPos pos, IBlockState newState, CallbackInfoReturnable<IBlockState> cir)
 	{
-		Chunk chunk = (Chunk) (Object) this;
-		oldState = chunk.getBlockState(pos);
-		CallbackResult<Void> cb = Registries.processPreSetBlock(chunk, pos, oldState, newState);
-		if (cb.shouldReturn())
+		if (Registries.preSetBlock((Chunk) (Object) this, pos, newState))
 			cir.cancel();
 	}
 
+	//injected at every return, the returned state is null when the block was not changed
 	@Inject(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/state/IBlockState;)Lnet/minecraft/block/state/IBlockState;",
-			at = @At("TAIL"))
+			at = @At("RETURN"))
 	private void postSetBlock(BlockPos pos, IBlockState newState, CallbackInfoReturnable<IBlockState> cir)
 	{
-		Registries.processPostSetBlock((Chunk) (Object) this, pos, oldState, newState);
+		Registries.postSetBlock((Chunk) (Object) this, pos, newState, cir.getReturnValue() != null);
 	}
 }
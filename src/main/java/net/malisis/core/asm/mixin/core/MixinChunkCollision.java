@@ -117,10 +117,8 @@ public class MixinChunkCollision
 				at = @At(value = "HEAD"))
 		private void setInfos(Vec3d src, Vec3d dest, boolean stopOnLiquid, boolean ignoreBlockWithoutBoundingBox, boolean returnLastUncollidableBlock, CallbackInfoReturnable<RayTraceResult> cir)
 		{
-			if (src != null && dest != null)
-				infos = Pair.of(new Point(src), new Point(dest));
-			else
-				infos = null;
+			//null if the ray doesn't cross any chunk with IChunkCollidable, so nothing to do on return
+			infos = ChunkCollision.get().setRayTraceInfos((World) (Object) this, src, dest);
 		}
 
 		//before each return, we check if our rayTrace (against IChunkCollidable) yeild a result closer to src, if so, use that result
@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.block;
+
+import java.util.List;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * Frequently called {@link IBlockComponent} methods that {@link MalisisBlock} dispatches through precomputed tables.<br>
+ * For each hook, only the components that actually override the default method are kept, so blocks whose components don't implement a
+ * hook go straight to the vanilla behavior.
+ *
+ * @author Ordinastie
+ */
+public enum BlockHook
+{
+	GET_BOUNDING_BOX("getBoundingBox", Block.class, IBlockAccess.class, BlockPos.class, IBlockState.class, BoundingBoxType.class),
+	GET_BOUNDING_BOXES("getBoundingBoxes", Block.class, IBlockAccess.class, BlockPos.class, IBlockState.class, BoundingBoxType.class),
+	GET_MAP_COLOR("getMapColor", Block.class, IBlockState.class, IBlockAccess.class, BlockPos.class),
+	GET_STATE_FROM_META("getStateFromMeta", Block.class, IBlockState.class, int.class),
+	GET_META_FROM_STATE("getMetaFromState", Block.class, IBlockState.class),
+	SHOULD_SIDE_BE_RENDERED("shouldSideBeRendered", Block.class, IBlockAccess.class, BlockPos.class, IBlockState.class, EnumFacing.class),
+	IS_FULL_BLOCK("isFullBlock", Block.class, IBlockState.class),
+	IS_FULL_CUBE("isFullCube", Block.class, IBlockState.class),
+	IS_OPAQUE_CUBE("isOpaqueCube", Block.class, IBlockState.class),
+	CAN_PROVIDE_POWER("canProvidePower", Block.class, IBlockState.class),
+	GET_PACKED_LIGHTMAP_COORDS("getPackedLightmapCoords", Block.class, IBlockAccess.class, BlockPos.class, IBlockState.class),
+	GET_LIGHT_OPACITY("getLightOpacity", Block.class, IBlockAccess.class, BlockPos.class, IBlockState.class);
+
+	/** Table for a hook no component overrides. */
+	public static final IBlockComponent[] NONE = new IBlockComponent[0];
+	private static final BlockHook[] HOOKS = values();
+
+	private final String name;
+	private final Class<?>[] parameters;
+
+	private BlockHook(String name, Class<?>... parameters)
+	{
+		this.name = name;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Checks whether the {@link IBlockComponent} overrides the default method for this {@link BlockHook}.
+	 *
+	 * @param component the component
+	 * @return true, if overridden
+	 */
+	public boolean isOverriddenBy(IBlockComponent component)
+	{
+		try
+		{
+			return component.getClass().getMethod(name, parameters).getDeclaringClass() != IBlockComponent.class;
+		}
+		catch (NoSuchMethodException e)
+		{
+			//can't tell, keep the component
+			return true;
+		}
+	}
+
+	/**
+	 * Builds the dispatch tables for the components, indexed by {@link BlockHook#ordinal()}.<br>
+	 * Components are kept in the order of the list.
+	 *
+	 * @param components the components
+	 * @return the tables
+	 */
+	public static IBlockComponent[][] resolve(List<IBlockComponent> components)
+	{
+		IBlockComponent[][] tables = new IBlockComponent[HOOKS.length][];
+		for (BlockHook hook : HOOKS)
+		{
+			IBlockComponent[] table = components.stream().filter(hook::isOverriddenBy).toArray(IBlockComponent[]::new);
+			tables[hook.ordinal()] = table.length > 0 ? table : NONE;
+		}
+		return tables;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.block;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.AxisAlignedBB;
+
+/**
+ * Cache of the rotated bounding boxes of a block, per {@link IBlockState} and {@link BoundingBoxType}.<br>
+ * Only used for blocks whose bounding boxes depend on the state alone (see {@link IBlockComponent#hasStateOnlyBoundingBoxes()}).<br>
+ * The cached arrays are shared by all the callers and must never be modified. The map is copy-on-write, so reads don't lock nor
+ * allocate.
+ *
+ * @author Ordinastie
+ */
+public class BoundingBoxCache
+{
+	private static final int TYPES = BoundingBoxType.values().length;
+
+	private volatile Map<IBlockState, AxisAlignedBB[][]> cache = new IdentityHashMap<>();
+
+	/**
+	 * Gets the cached bounding boxes for the {@link IBlockState} and {@link BoundingBoxType}.
+	 *
+	 * @param state the state
+	 * @param type the type
+	 * @return the bounding boxes, or null if not cached yet
+	 */
+	public AxisAlignedBB[] get(IBlockState state, BoundingBoxType type)
+	{
+		AxisAlignedBB[][] aabbs = cache.get(state);
+		return aabbs != null ? aabbs[type.ordinal()] : null;
+	}
+
+	/**
+	 * Caches the bounding boxes for the {@link IBlockState} and {@link BoundingBoxType}.
+	 *
+	 * @param state the state
+	 * @param type the type
+	 * @param aabbs the bounding boxes
+	 * @return the bounding boxes
+	 */
+	public synchronized AxisAlignedBB[] put(IBlockState state, BoundingBoxType type, AxisAlignedBB[] aabbs)
+	{
+		AxisAlignedBB[][] current = cache.get(state);
+		AxisAlignedBB[][] row = current != null ? current.clone() : new AxisAlignedBB[TYPES][];
+		row[type.ordinal()] = aabbs;
+
+		Map<IBlockState, AxisAlignedBB[][]> map = new IdentityHashMap<>(cache);
+		map.put(state, row);
+		cache = map;
+		return aabbs;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public synchronized void clear()
+	{
+		cache = new IdentityHashMap<>();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.block;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Memoizes the resolution of component types for an {@link IComponentProvider}.<br>
+ * The first component that is an instance of the requested type (class, superclass or interface) is cached for that type, and types with
+ * no matching component are cached as misses, so that repeated lookups don't allocate and don't go through the whole list of components.
+ * <br>
+ * The provider must call {@link #invalidate()} whenever a component is added.
+ *
+ * @author Ordinastie
+ */
+public class ComponentCache
+{
+	/** Cached value for types that have no matching component. */
+	private static final Object MISS = new Object();
+
+	private final IComponentProvider provider;
+	/** Copy-on-write map of resolved types. Replaced on each miss, read without locking. */
+	private volatile Map<Class<?>, Object> resolved = new IdentityHashMap<>();
+
+	public ComponentCache(IComponentProvider provider)
+	{
+		this.provider = provider;
+	}
+
+	/**
+	 * Gets the component of the specified type from the provider.
+	 *
+	 * @param <T> the generic type
+	 * @param type the type
+	 * @return the component, or null if the provider has no component of that type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Class<T> type)
+	{
+		Object component = resolved.get(type);
+		if (component == null)
+			component = resolve(type);
+		return component != MISS ? (T) component : null;
+	}
+
+	private synchronized Object resolve(Class<?> type)
+	{
+		Object component = resolved.get(type);
+		if (component != null)
+			return component;
+
+		component = MISS;
+		for (IComponent c : provider.getComponents())
+		{
+			if (type.isInstance(c))
+			{
+				component = c;
+				break;
+			}
+		}
+
+		Map<Class<?>, Object> map = new IdentityHashMap<>(resolved);
+		map.put(type, component);
+		resolved = map;
+		return component;
+	}
+
+	/**
+	 * Clears the resolved types.<br>
+	 * Called by the provider when its components change.
+	 */
+	public synchronized void invalidate()
+	{
+		resolved = new IdentityHashMap<>();
+	}
+}
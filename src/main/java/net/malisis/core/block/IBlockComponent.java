@@ -224,6 +224,18 @@ public interface IBlockComponent extends IComponent
 		return null;
 	}
 
+	/**
+	 * Whether the bounding boxes returned by this {@link IBlockComponent} only depend on the {@link IBlockState} when a world is
+	 * available.<br>
+	 * If all the components of a {@link MalisisBlock} return true, its bounding boxes are cached per state.
+	 *
+	 * @return true, if the bounding boxes can be cached per state
+	 */
+	public default boolean hasStateOnlyBoundingBoxes()
+	{
+		return false;
+	}
+
 	/**
 	 * Whether the {@link Block} can be placed on the side of another block.
 	 *
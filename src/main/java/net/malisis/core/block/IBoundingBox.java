@@ -64,22 +64,50 @@ public interface IBoundingBox
 		return new AxisAlignedBB[] { getBoundingBox(world, pos, state, type) };
 	}
 
+	/**
+	 * Gets the rotated {@link AxisAlignedBB} for this {@link IBoundingBox} if they only depend on the {@link IBlockState} and can be
+	 * cached.<br>
+	 * The returned array is shared and must not be modified.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @param state the state
+	 * @param type the type
+	 * @return the bounding boxes, or null if they need to be computed for the position
+	 */
+	public default AxisAlignedBB[] getStateBoundingBoxes(IBlockAccess world, BlockPos pos, IBlockState state, BoundingBoxType type)
+	{
+		return null;
+	}
+
 	public default AxisAlignedBB[] getCollisionBoundingBoxes(World world, BlockPos pos, IBlockState state)
 	{
-		AxisAlignedBB[] aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
+		AxisAlignedBB[] aabbs = getStateBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
+		if (aabbs != null)
+			return aabbs.clone();
+
+		aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
 		aabbs = AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state));
 		return aabbs;
 	}
 
 	public default void addCollisionBoxToList(IBlockState state, World world, BlockPos pos, AxisAlignedBB mask, List<AxisAlignedBB> list, Entity collidingEntity, boolean useActualState)
 	{
-		AxisAlignedBB[] aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
-		aabbs = AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state));
+		AxisAlignedBB[] aabbs = getStateBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
+		if (aabbs == null)
+		{
+			aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.COLLISION);
+			aabbs = AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state));
+		}
+		if (aabbs == null)
+			return;
 
-		for (AxisAlignedBB aabb : AABBUtils.offset(pos, aabbs))
+		//only offset the boxes that intersect, the array may be shared
+		int x = pos.getX(), y = pos.getY(), z = pos.getZ();
+		for (AxisAlignedBB aabb : aabbs)
 		{
-			if (aabb != null && mask.intersects(aabb))
-				list.add(aabb);
+			if (aabb != null && mask.intersects(aabb.minX + x, aabb.minY + y, aabb.minZ + z, aabb.maxX + x, aabb.maxY + y, aabb.maxZ + z))
+				list.add(aabb.offset(x, y, z));
 		}
 	}
 
@@ -97,7 +125,11 @@ public interface IBoundingBox
 
 	public default AxisAlignedBB[] getRenderBoundingBox(IBlockAccess world, BlockPos pos, IBlockState state)
 	{
-		AxisAlignedBB[] aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.RENDER);
+		AxisAlignedBB[] aabbs = getStateBoundingBoxes(world, pos, state, BoundingBoxType.RENDER);
+		if (aabbs != null)
+			return aabbs.clone();
+
+		aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.RENDER);
 		aabbs = AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state));
 
 		return aabbs;
@@ -105,7 +137,11 @@ public interface IBoundingBox
 
 	public default AxisAlignedBB[] getRayTraceBoundingBox(IBlockAccess world, BlockPos pos, IBlockState state)
 	{
-		AxisAlignedBB[] aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.RAYTRACE);
+		AxisAlignedBB[] aabbs = getStateBoundingBoxes(world, pos, state, BoundingBoxType.RAYTRACE);
+		if (aabbs != null)
+			return aabbs.clone();
+
+		aabbs = getBoundingBoxes(world, pos, state, BoundingBoxType.RAYTRACE);
 		aabbs = AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state));
 
 		return aabbs;
@@ -50,7 +50,8 @@ public interface IComponentProvider
 	public void addComponent(IComponent component);
 
 	/**
-	 * Gets the {@link IBlockComponent} of the specified type from this {@link IComponentProvider}.
+	 * Gets the {@link IBlockComponent} of the specified type from this {@link IComponentProvider}.<br>
+	 * Implementations called frequently should memoize the lookup with a {@link ComponentCache}.
 	 *
 	 * @param <T> the generic type
 	 * @param type the type
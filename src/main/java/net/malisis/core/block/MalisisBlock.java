@@ -40,6 +40,7 @@ import com.google.common.collect.Lists;
 
 import net.malisis.core.MalisisCore;
 import net.malisis.core.asm.AsmUtils;
+import net.malisis.core.block.component.DirectionalComponent;
 import net.malisis.core.block.component.ITickableComponent.PeriodicTickableComponent;
 import net.malisis.core.block.component.ITickableComponent.RandomTickableComponent;
 import net.malisis.core.block.component.LadderComponent;
@@ -49,6 +50,8 @@ import net.malisis.core.renderer.DefaultRenderer;
 import net.malisis.core.renderer.MalisisRendered;
 import net.malisis.core.renderer.icon.Icon;
 import net.malisis.core.renderer.icon.provider.IIconProvider;
+import net.malisis.core.util.AABBUtils;
+import net.malisis.core.util.scheduler.TickScheduler;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.MapColor;
 import net.minecraft.block.material.Material;
@@ -71,6 +74,7 @@ import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraftforge.common.property.IExtendedBlockState;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -87,6 +91,12 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	protected AxisAlignedBB boundingBox;
 	protected final List<IBlockComponent> blockComponents = Lists.newArrayList();
 	protected final List<IComponent> components = Lists.newArrayList();
+	private final ComponentCache componentCache = new ComponentCache(this);
+	/** Components overriding each {@link BlockHook}, indexed by ordinal. */
+	private IBlockComponent[][] hooks = BlockHook.resolve(blockComponents);
+	/** Whether the bounding boxes only depend on the state, and are cached in {@link #boundingBoxCache}. */
+	private boolean stateBoundingBoxes = false;
+	private final BoundingBoxCache boundingBoxCache = new BoundingBoxCache();
 
 	protected MalisisBlock(Material material)
 	{
@@ -128,12 +138,32 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 		return blockComponents;
 	}
 
+	/**
+	 * Gets the {@link IBlockComponent IBlockComponents} that override the {@link BlockHook}.
+	 *
+	 * @param hook the hook
+	 * @return the components
+	 */
+	protected IBlockComponent[] getBlockComponents(BlockHook hook)
+	{
+		//parent constructor call
+		if (hooks == null)
+			return BlockHook.NONE;
+		return hooks[hook.ordinal()];
+	}
+
 	@Override
 	public List<IComponent> getComponents()
 	{
 		return Stream.concat(blockComponents.stream(), components.stream()).collect(Collectors.toList());
 	}
 
+	@Override
+	public <T> T getComponent(Class<T> type)
+	{
+		return componentCache.get(type);
+	}
+
 	@Override
 	public void addComponent(IComponent component)
 	{
@@ -143,6 +173,9 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 		if (component instanceof IBlockComponent)
 		{
 			blockComponents.add((IBlockComponent) component);
+			hooks = BlockHook.resolve(blockComponents);
+			stateBoundingBoxes = hasStateOnlyBoundingBoxes();
+			boundingBoxCache.clear();
 			for (IComponent dep : ((IBlockComponent) component).getDependencies())
 				addComponent(dep);
 
@@ -152,6 +185,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 		else
 			components.add(component);
 
+		componentCache.invalidate();
 		component.onComponentAdded(this);
 
 		lightOpacity = getDefaultState().isOpaqueCube() ? 255 : 0;
@@ -278,7 +312,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	public boolean canProvidePower(IBlockState state)
 	{
 		boolean b = false;
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.CAN_PROVIDE_POWER))
 			b |= component.canProvidePower(this, state);
 
 		return b;
@@ -310,14 +344,14 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 
 		int nextTick = ptc.update(this, world, pos, state, rand);
 		if (nextTick > 0)
-			world.scheduleBlockUpdate(pos, this, nextTick, nextTick);
+			TickScheduler.get().schedule(world, pos, nextTick);
 	}
 
 	//BOUNDING BOX
 	@Override
 	public AxisAlignedBB getBoundingBox(IBlockAccess world, BlockPos pos, IBlockState state, BoundingBoxType type)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_BOUNDING_BOX))
 		{
 			AxisAlignedBB aabb = component.getBoundingBox(this, world, pos, state, type);
 			if (aabb != null)
@@ -330,8 +364,12 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public AxisAlignedBB[] getBoundingBoxes(IBlockAccess world, BlockPos pos, IBlockState state, BoundingBoxType type)
 	{
+		IBlockComponent[] overriding = getBlockComponents(BlockHook.GET_BOUNDING_BOXES);
+		if (overriding.length == 0)
+			return IBoundingBox.super.getBoundingBoxes(world, pos, state, type);
+
 		List<AxisAlignedBB> list = Lists.newArrayList();
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : overriding)
 		{
 			AxisAlignedBB[] aabbs = component.getBoundingBoxes(this, world, pos, state, type);
 			if (aabbs != null)
@@ -341,6 +379,52 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 		return list.size() != 0 ? list.toArray(new AxisAlignedBB[0]) : IBoundingBox.super.getBoundingBoxes(world, pos, state, type);
 	}
 
+	/**
+	 * Checks whether the bounding boxes of this {@link MalisisBlock} only depend on the state.<br>
+	 * That is the case if the class doesn't override the bounding box methods, and all the components providing bounding boxes declare
+	 * {@link IBlockComponent#hasStateOnlyBoundingBoxes()}.
+	 *
+	 * @return true, if the bounding boxes can be cached per state
+	 */
+	protected boolean hasStateOnlyBoundingBoxes()
+	{
+		try
+		{
+			Class<?>[] params = { IBlockAccess.class, BlockPos.class, IBlockState.class, BoundingBoxType.class };
+			if (getClass().getMethod("getBoundingBox", params).getDeclaringClass() != MalisisBlock.class
+					|| getClass().getMethod("getBoundingBoxes", params).getDeclaringClass() != MalisisBlock.class)
+				return false;
+		}
+		catch (NoSuchMethodException e)
+		{
+			return false;
+		}
+
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_BOUNDING_BOX))
+			if (!component.hasStateOnlyBoundingBoxes())
+				return false;
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_BOUNDING_BOXES))
+			if (!component.hasStateOnlyBoundingBoxes())
+				return false;
+		return true;
+	}
+
+	@Override
+	public AxisAlignedBB[] getStateBoundingBoxes(IBlockAccess world, BlockPos pos, IBlockState state, BoundingBoxType type)
+	{
+		//no world means the item is being rendered, and extended states are not bounded
+		if (!stateBoundingBoxes || world == null || state.getBlock() != this || state instanceof IExtendedBlockState)
+			return null;
+
+		AxisAlignedBB[] aabbs = boundingBoxCache.get(state, type);
+		if (aabbs == null)
+		{
+			aabbs = getBoundingBoxes(world, pos, state, type);
+			aabbs = boundingBoxCache.put(state, type, AABBUtils.rotate(aabbs, DirectionalComponent.getDirection(state)));
+		}
+		return aabbs;
+	}
+
 	@Override
 	public void addCollisionBoxToList(IBlockState state, World world, BlockPos pos, AxisAlignedBB mask, List<AxisAlignedBB> list, @Nullable Entity collidingEntity, boolean useActualState)
 	{
@@ -412,7 +496,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public MapColor getMapColor(IBlockState state, IBlockAccess world, BlockPos pos)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_MAP_COLOR))
 		{
 			MapColor color = component.getMapColor(this, state, world, pos);
 			if (color != null)
@@ -426,7 +510,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	public IBlockState getStateFromMeta(int meta)
 	{
 		IBlockState state = getDefaultState();
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_STATE_FROM_META))
 			state = component.getStateFromMeta(this, state, meta);
 
 		return state;
@@ -436,7 +520,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	public int getMetaFromState(IBlockState state)
 	{
 		int meta = 0;
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_META_FROM_STATE))
 			meta += component.getMetaFromState(this, state);
 
 		return meta;
@@ -447,7 +531,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public boolean shouldSideBeRendered(IBlockState state, IBlockAccess world, BlockPos pos, EnumFacing side)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.SHOULD_SIDE_BE_RENDERED))
 		{
 			Boolean render = component.shouldSideBeRendered(this, world, pos, state, side);
 			if (render != null)
@@ -459,7 +543,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public boolean isFullBlock(IBlockState state)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.IS_FULL_BLOCK))
 		{
 			Boolean full = component.isFullBlock(this, state);
 			if (full != null)
@@ -472,7 +556,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public boolean isFullCube(IBlockState state)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.IS_FULL_CUBE))
 		{
 			Boolean full = component.isFullCube(this, state);
 			if (full != null)
@@ -485,11 +569,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public boolean isOpaqueCube(IBlockState state)
 	{
-		//parent constructor call
-		if (getBlockComponents() == null)
-			return super.isOpaqueCube(state);
-
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.IS_OPAQUE_CUBE))
 		{
 			Boolean opaque = component.isOpaqueCube(this, state);
 			if (opaque != null)
@@ -504,7 +584,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@SideOnly(Side.CLIENT)
 	public int getPackedLightmapCoords(IBlockState state, IBlockAccess world, BlockPos pos)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_PACKED_LIGHTMAP_COORDS))
 		{
 			//TODO: use max light value
 			Integer light = component.getPackedLightmapCoords(this, world, pos, state);
@@ -544,7 +624,7 @@ public class MalisisBlock extends Block implements IBoundingBox, IRegisterable<B
 	@Override
 	public int getLightOpacity(IBlockState state, IBlockAccess world, BlockPos pos)
 	{
-		for (IBlockComponent component : getBlockComponents())
+		for (IBlockComponent component : getBlockComponents(BlockHook.GET_LIGHT_OPACITY))
 		{
 			Integer quantity = component.getLightOpacity(this, world, pos, state);
 			if (quantity != null)
@@ -98,6 +98,12 @@ public class CornerComponent implements IBlockComponent
 		return BOUNDING_BOXES;
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public Boolean isOpaqueCube(Block block, IBlockState state)
 	{
@@ -29,6 +29,7 @@ import java.util.Random;
 import net.malisis.core.block.IBlockComponent;
 import net.malisis.core.block.IComponentProvider;
 import net.malisis.core.block.MalisisBlock;
+import net.malisis.core.util.scheduler.TickScheduler;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
@@ -95,7 +96,8 @@ public interface ITickableComponent
 	}
 
 	/**
-	 * PeriodicTickableComponent when added to {@link MalisisBlock} allows the block to tick periodically.
+	 * PeriodicTickableComponent when added to {@link MalisisBlock} allows the block to tick periodically.<br>
+	 * The ticks are scheduled with the {@link TickScheduler} rather than the world pending ticks.
 	 */
 	public class PeriodicTickableComponent implements IBlockComponent
 	{
@@ -130,7 +132,14 @@ public interface ITickableComponent
 		public void onBlockAdded(Block block, World world, BlockPos pos, IBlockState state)
 		{
 			if (firstTickDelay > 0)
-				world.scheduleUpdate(pos, block, 1);
+				TickScheduler.get().schedule(world, pos, 1);
+		}
+
+		@Override
+		public void breakBlock(Block block, World world, BlockPos pos, IBlockState state)
+		{
+			//the block replacing this one should not receive our pending tick
+			TickScheduler.get().cancel(world, pos);
 		}
 
 		/**
@@ -90,6 +90,12 @@ public class LadderComponent implements IBlockComponent
 		return BOUNDING_BOX;
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public boolean canPlaceBlockOnSide(Block block, World world, BlockPos pos, EnumFacing side)
 	{
@@ -113,6 +113,12 @@ public class SlabComponent implements IBlockComponent, IMergedBlock, ISmartCull
 		return state.getValue(getBottomProperty()) ? BOTTOM_AABB : TOP_AABB;
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public IBlockState getStateFromMeta(Block block, IBlockState state, int meta)
 	{
@@ -123,6 +123,12 @@ public class SlopeComponent implements IBlockComponent
 		return down ? BOUNDING_BOXES_DOWN : BOUNDING_BOXES;
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public int getMetaFromState(Block block, IBlockState state)
 	{
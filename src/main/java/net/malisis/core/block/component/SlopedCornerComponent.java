@@ -171,6 +171,12 @@ public class SlopedCornerComponent implements IBlockComponent
 		return down ? BOUNDING_BOXES_DOWN : BOUNDING_BOXES;
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public void getSubBlocks(Block block, CreativeTabs tab, NonNullList<ItemStack> list)
 	{
@@ -221,6 +221,12 @@ public class WallComponent implements IBlockComponent, IMergedBlock, ISmartCull
 		return new AxisAlignedBB[] { aabb, AABBUtils.rotate(aabb, -1) };
 	}
 
+	@Override
+	public boolean hasStateOnlyBoundingBoxes()
+	{
+		return true;
+	}
+
 	@Override
 	public Boolean isOpaqueCube(Block block, IBlockState state)
 	{
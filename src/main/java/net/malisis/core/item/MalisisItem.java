@@ -31,6 +31,7 @@ import org.apache.commons.lang3.StringUtils;
 import com.google.common.collect.Lists;
 
 import net.malisis.core.MalisisCore;
+import net.malisis.core.block.ComponentCache;
 import net.malisis.core.block.IComponent;
 import net.malisis.core.block.IComponentProvider;
 import net.malisis.core.block.IRegisterable;
@@ -52,6 +53,7 @@ import net.minecraft.item.Item;
 public class MalisisItem extends Item implements IComponentProvider, IRegisterable<Item>
 {
 	protected final List<IComponent> components = Lists.newArrayList();
+	private final ComponentCache componentCache = new ComponentCache(this);
 
 	@Override
 	public MalisisItem setName(String name)
@@ -65,6 +67,7 @@ public class MalisisItem extends Item implements IComponentProvider, IRegisterab
 	public void addComponent(IComponent component)
 	{
 		components.add(component);
+		componentCache.invalidate();
 	}
 
 	@Override
@@ -73,6 +76,12 @@ public class MalisisItem extends Item implements IComponentProvider, IRegisterab
 		return components;
 	}
 
+	@Override
+	public <T> T getComponent(Class<T> type)
+	{
+		return componentCache.get(type);
+	}
+
 	public void setTexture(String textureName)
 	{
 		if (!StringUtils.isEmpty(textureName) && MalisisCore.isClient())
@@ -76,6 +76,12 @@ public class MalisisItemBlock extends ItemBlock implements IRegisterable<Item>,
 		return block().getComponents();
 	}
 
+	@Override
+	public <T> T getComponent(Class<T> type)
+	{
+		return block().getComponent(type);
+	}
+
 	@Override
 	public String getUnlocalizedName(ItemStack itemStack)
 	{
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.malisis.core.util.callback.ICallback.ICallbackPredicate;
+import net.minecraft.block.Block;
+
+/**
+ * Routes the callbacks of a registry to the {@link Block Blocks} they were registered for with a {@link BlockFilter}.<br>
+ * Holds, for each block, the indexes of the entries to process, in the order of the registry entries. Callbacks registered with
+ * {@link BlockFilter#ALL} are part of every block list.<br>
+ * A new index is built each time a callback is registered, and the lists are computed lazily so blocks registered later are handled.
+ *
+ * @author Ordinastie
+ * @param <C> the type of callback
+ * @param <P> the type of predicate
+ */
+class BlockCallbackIndex<C, P extends ICallbackPredicate>
+{
+	static final int[] EMPTY = new int[0];
+	private static final int MAX_BLOCK_ID = 4096;
+
+	/** Entries of the registry, sorted by priority. */
+	final Pair<C, CallbackOption<P>>[] entries;
+	/** Filters for each entry. */
+	private final BlockFilter[] filters;
+	/** Indexes of the entries registered with {@link BlockFilter#CHUNK_BLOCKS}. */
+	final int[] chunkBlocks;
+	/** Indexes of the entries to process, by block id. */
+	private final int[][] blocks = new int[MAX_BLOCK_ID][];
+
+	BlockCallbackIndex(Pair<C, CallbackOption<P>>[] entries, Map<Pair<C, CallbackOption<P>>, BlockFilter> filters)
+	{
+		this.entries = entries;
+		this.filters = new BlockFilter[entries.length];
+		TIntArrayList chunkBlocks = new TIntArrayList();
+		for (int i = 0; i < entries.length; i++)
+		{
+			BlockFilter filter = filters.get(entries[i]);
+			this.filters[i] = filter != null ? filter : BlockFilter.ALL;
+			if (filter == BlockFilter.CHUNK_BLOCKS)
+				chunkBlocks.add(i);
+		}
+		this.chunkBlocks = chunkBlocks.isEmpty() ? EMPTY : chunkBlocks.toArray();
+	}
+
+	/**
+	 * Gets the indexes of the entries to process for the {@link Block}.
+	 *
+	 * @param block the block
+	 * @return the indexes
+	 */
+	int[] get(Block block)
+	{
+		int id = Block.getIdFromBlock(block);
+		boolean cached = id >= 0 && id < MAX_BLOCK_ID;
+		if (cached && blocks[id] != null)
+			return blocks[id];
+
+		TIntArrayList list = new TIntArrayList();
+		for (int i = 0; i < filters.length; i++)
+		{
+			if (filters[i] == BlockFilter.ALL || filters[i].matches(block))
+				list.add(i);
+		}
+		int[] indexes = list.isEmpty() ? EMPTY : list.toArray();
+		if (cached)
+			blocks[id] = indexes;
+		return indexes;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import net.malisis.core.block.IComponent;
+import net.minecraft.block.Block;
+
+/**
+ * Declares which {@link Block Blocks} a set-block or render-block callback is interested in.<br>
+ * Callbacks registered with a {@code BlockFilter} are only processed for the matching blocks, instead of having their predicate evaluated
+ * for every block.
+ *
+ * @author Ordinastie
+ */
+public class BlockFilter
+{
+	/** The callback is called for every block. */
+	public static final BlockFilter ALL = new BlockFilter(null, Collections.emptySet());
+	/**
+	 * The callback is called for blocks set in chunks where {@link net.malisis.core.util.chunkblock.IChunkBlock IChunkBlocks} are stored,
+	 * whatever the block. Only used for set-block callbacks.
+	 */
+	public static final BlockFilter CHUNK_BLOCKS = new BlockFilter(null, Collections.emptySet());
+
+	private final Class<?> component;
+	private final Set<Block> blocks;
+
+	private BlockFilter(Class<?> component, Set<Block> blocks)
+	{
+		this.component = component;
+		this.blocks = blocks;
+	}
+
+	/**
+	 * Checks whether the {@link Block} matches this {@link BlockFilter}.<br>
+	 * {@link #ALL} and {@link #CHUNK_BLOCKS} don't match any block specifically.
+	 *
+	 * @param block the block
+	 * @return true, if successful
+	 */
+	public boolean matches(Block block)
+	{
+		if (blocks.contains(block))
+			return true;
+		return component != null && IComponent.getComponent(component, block) != null;
+	}
+
+	/**
+	 * The callback is called when the block has the component.
+	 *
+	 * @param component the component
+	 * @return the block filter
+	 */
+	public static BlockFilter component(Class<?> component)
+	{
+		return new BlockFilter(checkNotNull(component), Collections.emptySet());
+	}
+
+	/**
+	 * The callback is called for the specified blocks.
+	 *
+	 * @param blocks the blocks
+	 * @return the block filter
+	 */
+	public static BlockFilter blocks(Block... blocks)
+	{
+		Set<Block> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Block block : blocks)
+			set.add(checkNotNull(block));
+		return new BlockFilter(null, set);
+	}
+}
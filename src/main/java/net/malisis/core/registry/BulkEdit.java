@@ -0,0 +1,364 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallback;
+import net.malisis.core.registry.SetBlockCallbackRegistry.Pass;
+import net.malisis.core.util.callback.ICallback.Priority;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.pathfinding.PathWorldListener;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorldEventListener;
+import net.minecraft.world.ServerWorldEventHandler;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Transaction grouping many block changes in a {@link World}.<br>
+ * While a {@link BulkEdit} is open on a thread, the post {@link ISetBlockCallback ISetBlockCallbacks} are not processed for each block
+ * change on that world. The changes are recorded per {@link Chunk} and the callbacks are delivered when the edit is closed, followed by
+ * the {@link IBulkEditCallback IBulkEditCallbacks} once per chunk. Pre callbacks are still processed for each change, as they may
+ * cancel it, and so are the post callbacks with {@link Priority#HIGHEST} priority, which keep the caches read by the pre callbacks up to
+ * date.<br>
+ * Blocks set through the edit are not sent to the clients one by one, each modified chunk is sent once when the edit is closed. Only
+ * the {@link ServerWorldEventHandler} is skipped, the other {@link IWorldEventListener IWorldEventListeners}, like the
+ * {@link PathWorldListener} that updates the paths of the mobs, are still notified of each change.
+ *
+ * <pre>
+ * try (BulkEdit edit = MalisisRegistry.bulkEdit(world))
+ * {
+ * 	for (BlockPos pos : positions)
+ * 		edit.setBlockState(pos, state);
+ * }
+ * </pre>
+ *
+ * Opening an edit on a thread that already has one for the same world joins it, and the changes are delivered when the outermost one is
+ * closed. Edits for different worlds can be open at the same time on a thread.
+ *
+ * @author Ordinastie
+ */
+public class BulkEdit implements AutoCloseable
+{
+	private static final ThreadLocal<Map<World, BulkEdit>> edits = ThreadLocal.withInitial(IdentityHashMap::new);
+	/** Number of open edits on all threads, so that set-block calls don't look up the thread local when none is open. */
+	private static final AtomicInteger openEdits = new AtomicInteger();
+	private static final List<IBulkEditCallback> callbacks = new CopyOnWriteArrayList<>();
+
+	private final World world;
+	private final Map<Chunk, BlockChanges> changes = new LinkedHashMap<>();
+	private int depth = 1;
+
+	private BulkEdit(World world)
+	{
+		this.world = world;
+	}
+
+	/**
+	 * Gets the {@link World} this {@link BulkEdit} is for.
+	 *
+	 * @return the world
+	 */
+	public World getWorld()
+	{
+		return world;
+	}
+
+	/**
+	 * Sets the {@link IBlockState} at the position, like {@link World#setBlockState(BlockPos, IBlockState, int)}.<br>
+	 * On the server, the change is not sent to the clients right away if <code>flags</code> has 2, the chunk is sent when the edit is
+	 * closed instead.
+	 *
+	 * @param pos the pos
+	 * @param state the state
+	 * @param flags the flags
+	 * @return true, if the block was changed
+	 */
+	public boolean setBlockState(BlockPos pos, IBlockState state, int flags)
+	{
+		boolean sync = (flags & 2) != 0 && !world.isRemote;
+		IBlockState oldState = sync ? world.getBlockState(pos) : null;
+		if (!world.setBlockState(pos, state, sync ? flags & ~2 : flags))
+			return false;
+
+		if (sync)
+		{
+			Chunk chunk = world.getChunkFromBlockCoords(pos);
+			changes(chunk).sync |= 1 << (pos.getY() >> 4);
+			if (chunk.isPopulated())
+				notifyBlockUpdate(pos, oldState, state, flags);
+		}
+		return true;
+	}
+
+	/**
+	 * Notifies the {@link IWorldEventListener IWorldEventListeners} of the world of the change, as done by
+	 * {@link World#notifyBlockUpdate(BlockPos, IBlockState, IBlockState, int)}, except the {@link ServerWorldEventHandler} that would send
+	 * it to the clients.
+	 *
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @param flags the flags
+	 */
+	private void notifyBlockUpdate(BlockPos pos, IBlockState oldState, IBlockState newState, int flags)
+	{
+		for (IWorldEventListener listener : world.eventListeners)
+		{
+			if (!(listener instanceof ServerWorldEventHandler))
+				listener.notifyBlockUpdate(world, pos, oldState, newState, flags);
+		}
+	}
+
+	/**
+	 * Sets the {@link IBlockState} at the position, without notifying the neighbors.<br>
+	 * The chunk is sent to the clients when the edit is closed.
+	 *
+	 * @param pos the pos
+	 * @param state the state
+	 * @return true, if the block was changed
+	 */
+	public boolean setBlockState(BlockPos pos, IBlockState state)
+	{
+		return setBlockState(pos, state, 2);
+	}
+
+	/**
+	 * Sets the block at the position to air, without notifying the neighbors.<br>
+	 * The chunk is sent to the clients when the edit is closed.
+	 *
+	 * @param pos the pos
+	 * @return true, if the block was changed
+	 */
+	public boolean breakBlock(BlockPos pos)
+	{
+		return setBlockState(pos, Blocks.AIR.getDefaultState(), 2);
+	}
+
+	/**
+	 * Sets the block at the position to air and notifies the neighbors, like {@link World#setBlockToAir(BlockPos)}.<br>
+	 * The chunk is sent to the clients when the edit is closed.
+	 *
+	 * @param pos the pos
+	 * @return true, if the block was changed
+	 */
+	public boolean setBlockToAir(BlockPos pos)
+	{
+		return setBlockState(pos, Blocks.AIR.getDefaultState(), 3);
+	}
+
+	private BlockChanges changes(Chunk chunk)
+	{
+		return changes.computeIfAbsent(chunk, BlockChanges::new);
+	}
+
+	/**
+	 * Records a change for the deferred post {@link ISetBlockCallback ISetBlockCallbacks}.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 */
+	void record(Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
+	{
+		changes(chunk).add(pos.toImmutable(), oldState, newState);
+	}
+
+	/**
+	 * Closes this {@link BulkEdit}.<br>
+	 * Delivers the recorded changes to the callbacks and sends the modified chunks to the clients.
+	 */
+	@Override
+	public void close()
+	{
+		if (--depth > 0)
+			return;
+
+		edits.get().remove(world);
+		openEdits.decrementAndGet();
+
+		for (BlockChanges chunkChanges : changes.values())
+		{
+			Chunk chunk = chunkChanges.chunk;
+			for (int i = 0; i < chunkChanges.size; i++)
+			{
+				if (Registries.postSetBlockRegistry.isInterested(chunk, chunkChanges.oldStates[i], chunkChanges.newStates[i]))
+					Registries.postSetBlockRegistry.processCallbacks(	chunk,
+																		chunkChanges.positions[i],
+																		chunkChanges.oldStates[i],
+																		chunkChanges.newStates[i],
+																		Pass.DEFERRABLE);
+			}
+
+			if (chunkChanges.size > 0)
+				for (IBulkEditCallback callback : callbacks)
+					callback.call(chunk, chunkChanges);
+
+			sync(chunkChanges);
+		}
+		changes.clear();
+	}
+
+	/**
+	 * Sends the sections modified without sync to the players watching the chunk, in a single packet.
+	 *
+	 * @param chunkChanges the chunk changes
+	 */
+	private void sync(BlockChanges chunkChanges)
+	{
+		if (chunkChanges.sync == 0 || !(world instanceof WorldServer))
+			return;
+
+		Chunk chunk = chunkChanges.chunk;
+		PlayerChunkMapEntry entry = ((WorldServer) world).getPlayerChunkMap().getEntry(chunk.x, chunk.z);
+		if (entry != null && entry.isSentToPlayers())
+			entry.sendPacket(new SPacketChunkData(chunk, chunkChanges.sync));
+	}
+
+	/**
+	 * Opens a {@link BulkEdit} for the {@link World} on the current thread, or joins the one already open.
+	 *
+	 * @param world the world
+	 * @return the bulk edit
+	 */
+	static BulkEdit open(World world)
+	{
+		Map<World, BulkEdit> open = edits.get();
+		BulkEdit edit = open.get(world);
+		if (edit != null)
+		{
+			edit.depth++;
+			return edit;
+		}
+
+		edit = new BulkEdit(world);
+		open.put(world, edit);
+		openEdits.incrementAndGet();
+		return edit;
+	}
+
+	/**
+	 * Gets the {@link BulkEdit} open on the current thread for the {@link World}.
+	 *
+	 * @param world the world
+	 * @return the bulk edit, or null if none is open
+	 */
+	static BulkEdit current(World world)
+	{
+		if (openEdits.get() == 0)
+			return null;
+
+		return edits.get().get(world);
+	}
+
+	/**
+	 * Registers a {@link IBulkEditCallback}.
+	 *
+	 * @param callback the callback
+	 */
+	static void registerCallback(IBulkEditCallback callback)
+	{
+		callbacks.add(callback);
+	}
+
+	/**
+	 * Callback called once per {@link Chunk} with all the changes of a {@link BulkEdit}.
+	 */
+	@FunctionalInterface
+	public static interface IBulkEditCallback
+	{
+		public void call(Chunk chunk, BlockChanges changes);
+	}
+
+	/**
+	 * Block changes of a {@link BulkEdit} in a {@link Chunk}, in the order they happened.
+	 */
+	public static class BlockChanges
+	{
+		private final Chunk chunk;
+		private BlockPos[] positions = new BlockPos[16];
+		private IBlockState[] oldStates = new IBlockState[16];
+		private IBlockState[] newStates = new IBlockState[16];
+		private int size = 0;
+		/** Sections modified without being sent to the clients. */
+		private int sync = 0;
+
+		private BlockChanges(Chunk chunk)
+		{
+			this.chunk = chunk;
+		}
+
+		private void add(BlockPos pos, IBlockState oldState, IBlockState newState)
+		{
+			if (size == positions.length)
+			{
+				positions = Arrays.copyOf(positions, size * 2);
+				oldStates = Arrays.copyOf(oldStates, size * 2);
+				newStates = Arrays.copyOf(newStates, size * 2);
+			}
+			positions[size] = pos;
+			oldStates[size] = oldState;
+			newStates[size] = newState;
+			size++;
+		}
+
+		public Chunk getChunk()
+		{
+			return chunk;
+		}
+
+		public int size()
+		{
+			return size;
+		}
+
+		public BlockPos getPos(int index)
+		{
+			return positions[index];
+		}
+
+		public IBlockState getOldState(int index)
+		{
+			return oldStates[index];
+		}
+
+		public IBlockState getNewState(int index)
+		{
+			return newStates[index];
+		}
+	}
+}
@@ -31,6 +31,7 @@ import com.google.common.collect.ImmutableMap;
 
 import net.malisis.core.MalisisCore;
 import net.malisis.core.block.IRegisterable;
+import net.malisis.core.registry.BulkEdit.IBulkEditCallback;
 import net.malisis.core.registry.ClientRegistry.BlockRendererOverride;
 import net.malisis.core.registry.ClientRegistry.ItemRendererOverride;
 import net.malisis.core.registry.ModEventRegistry.IFMLEventCallback;
@@ -50,6 +51,8 @@ import net.minecraft.block.Block;
 import net.minecraft.item.Item;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.SoundEvent;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.client.model.ModelLoader;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLLoadCompleteEvent;
@@ -165,6 +168,20 @@ public class MalisisRegistry
 		renderBlockRegistry.registerCallback(callback, option);
 	}
 
+	/**
+	 * Registers a {@link IRenderBlockCallback} with the specified {@link CallbackOption} to be called when rendering the blocks matching
+	 * the {@link BlockFilter}.
+	 *
+	 * @param callback the callback
+	 * @param option the option
+	 * @param filter the filter
+	 */
+	@SideOnly(Side.CLIENT)
+	public static void onRenderBlock(IRenderBlockCallback callback, CallbackOption<IRenderBlockCallbackPredicate> option, BlockFilter filter)
+	{
+		renderBlockRegistry.registerCallback(callback, option, filter);
+	}
+
 	/**
 	 * Registers a {@link ISetBlockCallback} with the specified {@link CallbackOption} to be called after a {@link Block} is placed in the
 	 * world.
@@ -174,9 +191,24 @@ public class MalisisRegistry
 	 */
 	public static void onPreSetBlock(ISetBlockCallback callback, CallbackOption<ISetBlockCallbackPredicate> option)
 	{
+		checkArgument(!option.isDeferred(), "Pre set-block callbacks can't be deferred.");
 		preSetBlockRegistry.registerCallback(callback, option);
 	}
 
+	/**
+	 * Registers a {@link ISetBlockCallback} with the specified {@link CallbackOption} to be called before a {@link Block} is placed in the
+	 * world, only for the changes matching the {@link BlockFilter}.
+	 *
+	 * @param callback the callback
+	 * @param option the option
+	 * @param filter the filter
+	 */
+	public static void onPreSetBlock(ISetBlockCallback callback, CallbackOption<ISetBlockCallbackPredicate> option, BlockFilter filter)
+	{
+		checkArgument(!option.isDeferred(), "Pre set-block callbacks can't be deferred.");
+		preSetBlockRegistry.registerCallback(callback, option, filter);
+	}
+
 	/**
 	 * Registers a {@link ISetBlockCallback} with the specified {@link CallbackOption} to be called before a {@link Block} is placed in the
 	 * world.
@@ -189,6 +221,44 @@ public class MalisisRegistry
 		postSetBlockRegistry.registerCallback(callback, option);
 	}
 
+	/**
+	 * Registers a {@link ISetBlockCallback} with the specified {@link CallbackOption} to be called after a {@link Block} is placed in the
+	 * world, only for the changes matching the {@link BlockFilter}.<br>
+	 * Callbacks that don't change the world can use a {@link CallbackOption#defer(boolean) deferred} option to be called at the end of
+	 * the tick instead.
+	 *
+	 * @param callback the callback
+	 * @param option the option
+	 * @param filter the filter
+	 */
+	public static void onPostSetBlock(ISetBlockCallback callback, CallbackOption<ISetBlockCallbackPredicate> option, BlockFilter filter)
+	{
+		postSetBlockRegistry.registerCallback(callback, option, filter);
+	}
+
+	/**
+	 * Opens a {@link BulkEdit} for the {@link World} on the current thread.<br>
+	 * Post {@link ISetBlockCallback ISetBlockCallbacks} for the changes made until it is closed are delivered when it is closed.
+	 *
+	 * @param world the world
+	 * @return the bulk edit
+	 */
+	public static BulkEdit bulkEdit(World world)
+	{
+		return BulkEdit.open(checkNotNull(world));
+	}
+
+	/**
+	 * Registers a {@link IBulkEditCallback} to be called once per {@link Chunk} with the changes of a {@link BulkEdit} when it is
+	 * closed.
+	 *
+	 * @param callback the callback
+	 */
+	public static void onBulkEdit(IBulkEditCallback callback)
+	{
+		BulkEdit.registerCallback(checkNotNull(callback));
+	}
+
 	/**
 	 * Registers a {@link IBlockRenderer} for the {@link Block}, and its {@link Item} if any.
 	 *
@@ -32,9 +32,11 @@ import net.malisis.core.block.IRegisterComponent;
 import net.malisis.core.registry.ModEventRegistry.IFMLEventCallback;
 import net.malisis.core.registry.RenderBlockRegistry.IRenderBlockCallback;
 import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallback;
+import net.malisis.core.registry.SetBlockCallbackRegistry.Pass;
 import net.malisis.core.registry.TextureStitchedRegistry.ITextureStitchedCallback;
 import net.malisis.core.renderer.IItemRenderer;
 import net.malisis.core.util.callback.CallbackResult;
+import net.malisis.core.util.callback.ICallback.Priority;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.renderer.BlockModelShapes;
@@ -124,6 +126,64 @@ public class Registries
 		return renderBlockRegistry.processCallbacks(buffer, world, pos, state);
 	}
 
+	/**
+	 * Called by ASM at the start of {@link Chunk#setBlockState(BlockPos, IBlockState)}.<br>
+	 * Processes the pre {@link ISetBlockCallback ISetBlockCallbacks} if any callback may be interested in the change, and keeps the
+	 * replaced state for {@link #postSetBlock(Chunk, BlockPos, IBlockState, boolean)}.<br>
+	 * Every call that is not cancelled pushes an entry, without a state if nothing is interested, so that pushes and pops always pair.<br>
+	 * Every change is kept while a {@link BulkEdit} is open, so that it can be recorded.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param newState the new state
+	 * @return true, if the block should not be set
+	 */
+	public static boolean preSetBlock(Chunk chunk, BlockPos pos, IBlockState newState)
+	{
+		IBlockState oldState = chunk.getBlockState(pos);
+		SetBlockStack stack = SetBlockStack.get();
+		if (!preSetBlockRegistry.isInterested(chunk, oldState, newState) && !postSetBlockRegistry.isInterested(chunk, oldState, newState)
+				&& BulkEdit.current(chunk.getWorld()) == null)
+		{
+			//still pushed so that a nested call for the same pos doesn't pop the entry of an outer call
+			stack.push(chunk, pos, null);
+			return false;
+		}
+
+		if (processPreSetBlock(chunk, pos, oldState, newState).shouldReturn())
+			return true;
+
+		stack.push(chunk, pos, oldState);
+		return false;
+	}
+
+	/**
+	 * Called by ASM when {@link Chunk#setBlockState(BlockPos, IBlockState)} returns.<br>
+	 * Processes the post {@link ISetBlockCallback ISetBlockCallbacks} if the pre ones were processed and the block was actually changed.<br>
+	 * If a {@link BulkEdit} is open for the world, only the {@link Priority#HIGHEST} callbacks are processed, and the change is recorded
+	 * for the others.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param newState the new state
+	 * @param changed whether the block was changed
+	 */
+	public static void postSetBlock(Chunk chunk, BlockPos pos, IBlockState newState, boolean changed)
+	{
+		IBlockState oldState = SetBlockStack.get().pop(chunk, pos);
+		if (oldState == null || !changed)
+			return;
+
+		BulkEdit edit = BulkEdit.current(chunk.getWorld());
+		if (edit != null)
+		{
+			postSetBlockRegistry.processCallbacks(chunk, pos, oldState, newState, Pass.HIGHEST);
+			edit.record(chunk, pos, oldState, newState);
+		}
+		else
+			processPostSetBlock(chunk, pos, oldState, newState);
+	}
+
 	/**
 	 * Processes {@link ISetBlockCallback ISetBlockCallbacks}.<br>
 	 * Called by ASM from {@link Chunk#setBlockState(BlockPos, IBlockState)}.
@@ -24,12 +24,20 @@
 
 package net.malisis.core.registry;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+
 import net.malisis.core.registry.RenderBlockRegistry.IRenderBlockCallback;
 import net.malisis.core.registry.RenderBlockRegistry.IRenderBlockCallbackPredicate;
+import net.malisis.core.util.callback.CallbackProfiler;
 import net.malisis.core.util.callback.CallbackRegistry;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
 import net.malisis.core.util.callback.ICallback.ICallbackPredicate;
+import net.malisis.core.util.callback.ICallback.Priority;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.renderer.BufferBuilder;
 import net.minecraft.util.math.BlockPos;
@@ -41,6 +49,80 @@ import net.minecraft.world.IBlockAccess;
  */
 public class RenderBlockRegistry extends CallbackRegistry<IRenderBlockCallback, IRenderBlockCallbackPredicate, Boolean>
 {
+	/** Filters the callbacks were registered with. */
+	private Map<Pair<IRenderBlockCallback, CallbackOption<IRenderBlockCallbackPredicate>>, BlockFilter> filters = new IdentityHashMap<>();
+	private volatile BlockCallbackIndex<IRenderBlockCallback, IRenderBlockCallbackPredicate> index = new BlockCallbackIndex<>(entries, filters);
+
+	@Override
+	public void registerCallback(IRenderBlockCallback callback, CallbackOption<IRenderBlockCallbackPredicate> option)
+	{
+		registerCallback(callback, option, BlockFilter.ALL);
+	}
+
+	/**
+	 * Registers a {@link IRenderBlockCallback} that will only be called for the blocks matching the {@link BlockFilter}.
+	 *
+	 * @param callback the callback
+	 * @param option the option
+	 * @param filter the filter
+	 */
+	public synchronized void registerCallback(IRenderBlockCallback callback, CallbackOption<IRenderBlockCallbackPredicate> option, BlockFilter filter)
+	{
+		super.registerCallback(callback, option);
+		for (Pair<IRenderBlockCallback, CallbackOption<IRenderBlockCallbackPredicate>> entry : entries)
+			filters.putIfAbsent(entry, filter);
+		index = new BlockCallbackIndex<>(entries, filters);
+	}
+
+	@Override
+	public CallbackResult<Boolean> processCallbacks(Object... params)
+	{
+		return processCallbacks((BufferBuilder) params[0], (IBlockAccess) params[1], (BlockPos) params[2], (IBlockState) params[3]);
+	}
+
+	/**
+	 * Processes the {@link IRenderBlockCallback IRenderBlockCallbacks} relevant for the block, according to their priority.<br>
+	 * Callbacks and predicates are called directly, without allocating the parameters array.
+	 *
+	 * @param buffer the buffer
+	 * @param world the world
+	 * @param pos the pos
+	 * @param state the state
+	 * @return the callback result
+	 */
+	public CallbackResult<Boolean> processCallbacks(BufferBuilder buffer, IBlockAccess world, BlockPos pos, IBlockState state)
+	{
+		BlockCallbackIndex<IRenderBlockCallback, IRenderBlockCallbackPredicate> index = this.index;
+		int[] indexes = index.get(state.getBlock());
+		boolean profile = CallbackProfiler.isEnabled();
+		CallbackResult<Boolean> result = CallbackResult.noResult();
+		Priority lastPriority = Priority.HIGHEST;
+		for (int i = 0; i < indexes.length; i++)
+		{
+			Pair<IRenderBlockCallback, CallbackOption<IRenderBlockCallbackPredicate>> entry = index.entries[indexes[i]];
+			CallbackOption<IRenderBlockCallbackPredicate> option = entry.getRight();
+			if (result.isCancelled() && option.getPriority() != lastPriority)
+				return result;
+
+			long start = profile ? System.nanoTime() : 0;
+			IRenderBlockCallbackPredicate predicate = option.getPredicate();
+			if (predicate == null || predicate.apply(buffer, world, pos, state))
+			{
+				CallbackResult<Boolean> tmp = entry.getLeft().callback(buffer, world, pos, state);
+				if (profile)
+					CallbackProfiler.record(entry, true, System.nanoTime() - start);
+				result = reduce.apply(result, tmp);
+				if (result.isForcedCancelled())
+					return result;
+
+				lastPriority = option.getPriority();
+			}
+			else if (profile)
+				CallbackProfiler.record(entry, false, System.nanoTime() - start);
+		}
+		return result;
+	}
+
 	/**
 	 * Specialized {@link ICallback} called when a block is rendered.
 	 */
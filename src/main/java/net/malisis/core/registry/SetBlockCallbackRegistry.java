@@ -24,22 +24,187 @@
 
 package net.malisis.core.registry;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.Pair;
+
 import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallback;
 import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallbackPredicate;
+import net.malisis.core.util.callback.CallbackProfiler;
 import net.malisis.core.util.callback.CallbackRegistry;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
 import net.malisis.core.util.callback.ICallback.ICallbackPredicate;
+import net.malisis.core.util.callback.ICallback.Priority;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
+import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.chunk.Chunk;
 
 /**
+ * {@link CallbackRegistry} for {@link ISetBlockCallback ISetBlockCallbacks}.<br>
+ * Callbacks can be registered with a {@link BlockFilter} so that they are only processed for the blocks they are interested in, and
+ * set-block calls that no callback is interested in are not dispatched at all (see {@link #isInterested(Chunk, IBlockState, IBlockState)}).<br>
+ * Callbacks registered with a {@link CallbackOption#defer(boolean) deferred} option are recorded in the {@link SetBlockJournal} instead.
+ *
  * @author Ordinastie
  *
  */
 public class SetBlockCallbackRegistry extends CallbackRegistry<ISetBlockCallback, ISetBlockCallbackPredicate, Void>
 {
+	/** Filters the callbacks were registered with. */
+	private Map<Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>>, BlockFilter> filters = new IdentityHashMap<>();
+	private volatile BlockCallbackIndex<ISetBlockCallback, ISetBlockCallbackPredicate> index = new BlockCallbackIndex<>(entries, filters);
+
+	@Override
+	public void registerCallback(ISetBlockCallback callback, CallbackOption<ISetBlockCallbackPredicate> option)
+	{
+		registerCallback(callback, option, BlockFilter.ALL);
+	}
+
+	/**
+	 * Registers a {@link ISetBlockCallback} that will only be called for set-block calls matching the {@link BlockFilter}.<br>
+	 * A callback with a {@link BlockFilter#component(Class)} or {@link BlockFilter#blocks(Block...)} filter is called when either the old
+	 * or the new block matches.
+	 *
+	 * @param callback the callback
+	 * @param option the option
+	 * @param filter the filter
+	 */
+	public synchronized void registerCallback(ISetBlockCallback callback, CallbackOption<ISetBlockCallbackPredicate> option, BlockFilter filter)
+	{
+		super.registerCallback(callback, option);
+		for (Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>> entry : entries)
+			filters.putIfAbsent(entry, filter);
+		index = new BlockCallbackIndex<>(entries, filters);
+	}
+
+	@Override
+	public CallbackResult<Void> processCallbacks(Object... params)
+	{
+		return processCallbacks((Chunk) params[0], (BlockPos) params[1], (IBlockState) params[2], (IBlockState) params[3]);
+	}
+
+	/**
+	 * Processes the {@link ISetBlockCallback ISetBlockCallbacks} relevant for the old and new blocks, according to their priority.<br>
+	 * Callbacks and predicates are called directly, without allocating the parameters array.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @return the callback result
+	 */
+	public CallbackResult<Void> processCallbacks(Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
+	{
+		return processCallbacks(chunk, pos, oldState, newState, Pass.ALL);
+	}
+
+	/**
+	 * Processes the callbacks of the {@link Pass}.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @param pass the pass
+	 * @return the callback result
+	 */
+	CallbackResult<Void> processCallbacks(Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState, Pass pass)
+	{
+		BlockCallbackIndex<ISetBlockCallback, ISetBlockCallbackPredicate> index = this.index;
+		int[] o = index.get(oldState.getBlock());
+		int[] n = oldState.getBlock() != newState.getBlock() ? index.get(newState.getBlock()) : BlockCallbackIndex.EMPTY;
+		int[] c = hasChunkBlocks(index, chunk) ? index.chunkBlocks : BlockCallbackIndex.EMPTY;
+
+		boolean profile = CallbackProfiler.isEnabled();
+		CallbackResult<Void> result = CallbackResult.noResult();
+		Priority lastPriority = Priority.HIGHEST;
+		int i = 0, j = 0, k = 0;
+		while (true)
+		{
+			//merge the three sorted lists, processing each entry once
+			int next = Math.min(i < o.length ? o[i] : Integer.MAX_VALUE,
+					Math.min(j < n.length ? n[j] : Integer.MAX_VALUE, k < c.length ? c[k] : Integer.MAX_VALUE));
+			if (next == Integer.MAX_VALUE)
+				return result;
+			if (i < o.length && o[i] == next)
+				i++;
+			if (j < n.length && n[j] == next)
+				j++;
+			if (k < c.length && c[k] == next)
+				k++;
+
+			Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>> entry = index.entries[next];
+			CallbackOption<ISetBlockCallbackPredicate> option = entry.getRight();
+			if (result.isCancelled() && option.getPriority() != lastPriority)
+				return result;
+			if (!pass.accepts(option))
+				continue;
+
+			//deferred callbacks are delivered at the end of the tick
+			if (option.isDeferred() && SetBlockJournal.record(entry, chunk, pos, oldState, newState))
+				continue;
+
+			long start = profile ? System.nanoTime() : 0;
+			ISetBlockCallbackPredicate predicate = option.getPredicate();
+			if (predicate == null || predicate.apply(chunk, pos, oldState, newState))
+			{
+				CallbackResult<Void> tmp = entry.getLeft().call(chunk, pos, oldState, newState);
+				if (profile)
+					CallbackProfiler.record(entry, true, System.nanoTime() - start);
+				result = reduce.apply(result, tmp);
+				if (result.isForcedCancelled())
+					return result;
+
+				lastPriority = option.getPriority();
+			}
+			else if (profile)
+				CallbackProfiler.record(entry, false, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Checks whether any of the registered {@link ISetBlockCallback ISetBlockCallbacks} is interested in the block change.
+	 *
+	 * @param chunk the chunk
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @return true, if the callbacks need to be processed
+	 */
+	public boolean isInterested(Chunk chunk, IBlockState oldState, IBlockState newState)
+	{
+		BlockCallbackIndex<ISetBlockCallback, ISetBlockCallbackPredicate> index = this.index;
+		if (index.entries.length == 0)
+			return false;
+
+		return index.get(oldState.getBlock()).length > 0 || index.get(newState.getBlock()).length > 0 || hasChunkBlocks(index, chunk);
+	}
+
+	private boolean hasChunkBlocks(BlockCallbackIndex<?, ?> index, Chunk chunk)
+	{
+		return index.chunkBlocks.length > 0 && ChunkBlockHandler.get().store(chunk.getWorld()).getIndex(chunk.x, chunk.z) != null;
+	}
+
+	/**
+	 * Callbacks processed for a change. {@link BulkEdit} processes the {@link Priority#HIGHEST} ones with the change, and the others when
+	 * it is closed.
+	 */
+	static enum Pass
+	{
+		ALL,
+		HIGHEST,
+		DEFERRABLE;
+
+		boolean accepts(CallbackOption<?> option)
+		{
+			return this == ALL || (option.getPriority() == Priority.HIGHEST) == (this == HIGHEST);
+		}
+	}
+
 	public static interface ISetBlockCallback extends ICallback<Void>
 	{
 		@Override
@@ -0,0 +1,240 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.malisis.core.MalisisCore;
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallback;
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallbackPredicate;
+import net.malisis.core.util.callback.CallbackProfiler;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Per-thread journal of the {@link ISetBlockCallback ISetBlockCallbacks} registered with a {@link CallbackOption#defer(boolean) deferred}
+ * option.<br>
+ * Instead of being processed inside {@link Chunk#setBlockState(BlockPos, IBlockState)}, the block changes are recorded and delivered in
+ * a single batch at the end of the tick, in the order they happened. Callbacks declared thread safe are delivered on a worker pool, one
+ * task per callback so each one still sees the changes in order.<br>
+ * Only the server and client threads have a journal. Changes happening on other threads are processed immediately.
+ *
+ * @author Ordinastie
+ */
+@AutoLoad
+class SetBlockJournal
+{
+	private static final ThreadLocal<SetBlockJournal> journals = new ThreadLocal<>();
+	private static ExecutorService workers;
+
+	static
+	{
+		MinecraftForge.EVENT_BUS.register(new SetBlockJournal());
+	}
+
+	private Batch batch = new Batch();
+
+	/**
+	 * Records a block change for a deferred callback, if the current thread has a journal.
+	 *
+	 * @param entry the registry entry of the callback
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @return true, if the change was recorded, false if the callback should be processed immediately
+	 */
+	static boolean record(Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>> entry, Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
+	{
+		SetBlockJournal journal = journals.get();
+		if (journal == null)
+			return false;
+
+		journal.batch.add(entry, chunk, pos.toImmutable(), oldState, newState);
+		return true;
+	}
+
+	/**
+	 * Delivers the changes recorded during the tick by the current thread.
+	 */
+	private void flush()
+	{
+		Batch batch = this.batch;
+		if (batch.size == 0)
+			return;
+
+		Map<Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>>, TIntArrayList> async = null;
+		for (int i = 0; i < batch.size; i++)
+		{
+			if (!batch.entries[i].getRight().isThreadSafe())
+				batch.deliver(i);
+			else
+			{
+				if (async == null)
+					async = new IdentityHashMap<>();
+				async.computeIfAbsent(batch.entries[i], e -> new TIntArrayList()).add(i);
+			}
+		}
+
+		if (async == null)
+		{
+			batch.clear();
+			return;
+		}
+
+		//the batch is still read by the workers, start a new one for the next tick
+		this.batch = new Batch();
+		for (TIntArrayList indexes : async.values())
+			workers().execute(() -> indexes.forEach(i -> {
+				batch.deliver(i);
+				return true;
+			}));
+	}
+
+	private static synchronized ExecutorService workers()
+	{
+		if (workers == null)
+		{
+			AtomicInteger count = new AtomicInteger();
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+			workers = Executors.newFixedThreadPool(threads, r -> {
+				Thread thread = new Thread(r, "MalisisCore SetBlock Worker " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return workers;
+	}
+
+	private void onTick(TickEvent.Phase phase)
+	{
+		SetBlockJournal journal = journals.get();
+		if (journal == null)
+		{
+			journal = new SetBlockJournal();
+			journals.set(journal);
+		}
+
+		if (phase == TickEvent.Phase.END)
+			journal.flush();
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		onTick(event.phase);
+	}
+
+	@SubscribeEvent
+	public void onClientTick(TickEvent.ClientTickEvent event)
+	{
+		onTick(event.phase);
+	}
+
+	/**
+	 * Block changes recorded during a tick, stored in parallel arrays.
+	 */
+	private static class Batch
+	{
+		private Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>>[] entries = newEntries(64);
+		private Chunk[] chunks = new Chunk[64];
+		private BlockPos[] positions = new BlockPos[64];
+		private IBlockState[] oldStates = new IBlockState[64];
+		private IBlockState[] newStates = new IBlockState[64];
+		private int size = 0;
+
+		@SuppressWarnings("unchecked")
+		private static Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>>[] newEntries(int size)
+		{
+			return new Pair[size];
+		}
+
+		private void add(Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>> entry, Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
+		{
+			if (size == chunks.length)
+			{
+				entries = Arrays.copyOf(entries, size * 2);
+				chunks = Arrays.copyOf(chunks, size * 2);
+				positions = Arrays.copyOf(positions, size * 2);
+				oldStates = Arrays.copyOf(oldStates, size * 2);
+				newStates = Arrays.copyOf(newStates, size * 2);
+			}
+			entries[size] = entry;
+			chunks[size] = chunk;
+			positions[size] = pos;
+			oldStates[size] = oldState;
+			newStates[size] = newState;
+			size++;
+		}
+
+		/**
+		 * Tests the predicate and processes the callback for a recorded change.
+		 *
+		 * @param i the index of the change
+		 */
+		private void deliver(int i)
+		{
+			Pair<ISetBlockCallback, CallbackOption<ISetBlockCallbackPredicate>> entry = entries[i];
+			boolean profile = CallbackProfiler.isEnabled();
+			long start = profile ? System.nanoTime() : 0;
+			try
+			{
+				ISetBlockCallbackPredicate predicate = entry.getRight().getPredicate();
+				boolean passed = predicate == null || predicate.apply(chunks[i], positions[i], oldStates[i], newStates[i]);
+				if (passed)
+					entry.getLeft().call(chunks[i], positions[i], oldStates[i], newStates[i]);
+				if (profile)
+					CallbackProfiler.record(entry, passed, System.nanoTime() - start);
+			}
+			catch (RuntimeException e)
+			{
+				MalisisCore.log.error("Deferred set-block callback failed at {}.", positions[i], e);
+			}
+		}
+
+		private void clear()
+		{
+			Arrays.fill(entries, 0, size, null);
+			Arrays.fill(chunks, 0, size, null);
+			Arrays.fill(positions, 0, size, null);
+			Arrays.fill(oldStates, 0, size, null);
+			Arrays.fill(newStates, 0, size, null);
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.registry;
+
+import java.util.Arrays;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Per-thread stack of the {@link Chunk#setBlockState(BlockPos, IBlockState)} calls currently being processed.<br>
+ * Holds the state replaced by each call between the pre and post set-block dispatches, so nested and concurrent calls don't overwrite
+ * each other.<br>
+ * Every call pushes an entry, with a null state when no callback is interested in it, so a nested call always pops its own entry even
+ * when vanilla passes it the same {@link BlockPos} instance as the outer call.
+ *
+ * @author Ordinastie
+ */
+class SetBlockStack
+{
+	private static final ThreadLocal<SetBlockStack> stacks = ThreadLocal.withInitial(SetBlockStack::new);
+
+	private Chunk[] chunks = new Chunk[8];
+	private BlockPos[] positions = new BlockPos[8];
+	private IBlockState[] states = new IBlockState[8];
+	private int size = 0;
+
+	static SetBlockStack get()
+	{
+		return stacks.get();
+	}
+
+	void push(Chunk chunk, BlockPos pos, IBlockState oldState)
+	{
+		if (size == chunks.length)
+		{
+			chunks = Arrays.copyOf(chunks, size * 2);
+			positions = Arrays.copyOf(positions, size * 2);
+			states = Arrays.copyOf(states, size * 2);
+		}
+		chunks[size] = chunk;
+		positions[size] = pos;
+		states[size] = oldState;
+		size++;
+	}
+
+	/**
+	 * Pops the state pushed for the {@link Chunk} and {@link BlockPos}.<br>
+	 * Entries above it are discarded, in case a call was interrupted by an exception before reaching the post dispatch.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @return the old state, or null if no callback is interested in that call
+	 */
+	IBlockState pop(Chunk chunk, BlockPos pos)
+	{
+		for (int i = size - 1; i >= 0; i--)
+		{
+			if (chunks[i] == chunk && positions[i] == pos)
+			{
+				IBlockState state = states[i];
+				Arrays.fill(chunks, i, size, null);
+				Arrays.fill(positions, i, size, null);
+				Arrays.fill(states, i, size, null);
+				size = i;
+				return state;
+			}
+		}
+		return null;
+	}
+}
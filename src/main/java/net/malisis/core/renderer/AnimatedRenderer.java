@@ -30,7 +30,9 @@ import java.util.Optional;
 import com.google.common.collect.Maps;
 
 import net.malisis.core.block.IComponent;
+import net.malisis.core.registry.BlockFilter;
 import net.malisis.core.registry.MalisisRegistry;
+import net.malisis.core.registry.SetBlockCallbackRegistry.ISetBlockCallbackPredicate;
 import net.malisis.core.renderer.component.AnimatedModelComponent;
 import net.malisis.core.util.BlockPosUtils;
 import net.malisis.core.util.EntityUtils;
@@ -61,8 +63,10 @@ public class AnimatedRenderer extends MalisisRenderer<TileEntity>
 	private static Map<BlockPos, IAnimatedRenderable> animatedRenderables = Maps.newHashMap();
 	static
 	{
-		//check renderable to be removed when a block changes.
-		MalisisRegistry.onPostSetBlock(AnimatedRenderer::removeRenderable, CallbackOption.of());
+		//check renderable to be removed when a block changes, nothing to do before the end of the tick.
+		MalisisRegistry.onPostSetBlock(	AnimatedRenderer::removeRenderable,
+										CallbackOption.<ISetBlockCallbackPredicate> of().defer(false),
+										BlockFilter.component(AnimatedModelComponent.class));
 	}
 
 	/** Current {@link IAnimatedRenderable} being rendered. */
@@ -37,6 +37,16 @@ import net.minecraft.util.math.BlockPos;
  */
 public class BlockPosUtils
 {
+	//BlockPos.toLong() constants
+	private static final int NUM_X_BITS = 26;
+	private static final int NUM_Z_BITS = NUM_X_BITS;
+	private static final int NUM_Y_BITS = 64 - NUM_X_BITS - NUM_Z_BITS;
+	private static final int Y_SHIFT = 0 + NUM_Z_BITS;
+	private static final int X_SHIFT = Y_SHIFT + NUM_Y_BITS;
+	private static final long X_MASK = (1L << NUM_X_BITS) - 1L;
+	private static final long Y_MASK = (1L << NUM_Y_BITS) - 1L;
+	private static final long Z_MASK = (1L << NUM_Z_BITS) - 1L;
+
 	/**
 	 * Rotates the {@link BlockPos} around the Y axis around the origin (0,0,0).
 	 *
@@ -120,4 +130,49 @@ public class BlockPosUtils
 		return Double.compare(pos1.distanceSq(offset.x, offset.y, offset.z), pos2.distanceSq(offset.x, offset.y, offset.z));
 	}
 
+	/**
+	 * Packs the coordinates into a long, the same way {@link BlockPos#toLong()} does.
+	 *
+	 * @param x the x
+	 * @param y the y
+	 * @param z the z
+	 * @return the long
+	 */
+	public static long toLong(int x, int y, int z)
+	{
+		return (x & X_MASK) << X_SHIFT | (y & Y_MASK) << Y_SHIFT | (z & Z_MASK) << 0;
+	}
+
+	/**
+	 * Gets the X coordinate of a position packed with {@link BlockPos#toLong()}.
+	 *
+	 * @param coord the coord
+	 * @return the x
+	 */
+	public static int getX(long coord)
+	{
+		return (int) (coord << 64 - X_SHIFT - NUM_X_BITS >> 64 - NUM_X_BITS);
+	}
+
+	/**
+	 * Gets the Y coordinate of a position packed with {@link BlockPos#toLong()}.
+	 *
+	 * @param coord the coord
+	 * @return the y
+	 */
+	public static int getY(long coord)
+	{
+		return (int) (coord << 64 - Y_SHIFT - NUM_Y_BITS >> 64 - NUM_Y_BITS);
+	}
+
+	/**
+	 * Gets the Z coordinate of a position packed with {@link BlockPos#toLong()}.
+	 *
+	 * @param coord the coord
+	 * @return the z
+	 */
+	public static int getZ(long coord)
+	{
+		return (int) (coord << 64 - NUM_Z_BITS >> 64 - NUM_Z_BITS);
+	}
 }
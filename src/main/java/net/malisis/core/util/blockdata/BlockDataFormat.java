@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.blockdata;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import io.netty.buffer.ByteBuf;
+import net.malisis.core.MalisisCore;
+import net.malisis.core.util.BlockPosUtils;
+import net.malisis.core.util.blockdata.BlockDataHandler.ChunkData;
+import net.malisis.core.util.blockdata.BlockDataHandler.HandlerInfo;
+
+/**
+ * Binary format used to persist {@link ChunkData} in the chunk NBT.
+ *
+ * <p>
+ * Version 1 layout (varints are unsigned LEB128) :
+ * <ul>
+ * <li>{@code byte} version</li>
+ * <li>{@code varint} dictionary size, then for each value : {@code varint} length and bytes</li>
+ * <li>{@code varint} section count, then for each section :
+ * <ul>
+ * <li>{@code byte} section Y and {@code varint} entry count</li>
+ * <li>for each entry : {@code short} with the 12-bit section-local position ({@code y << 8 | z << 4 | x}) and the dictionary flag, then
+ * either a {@code varint} dictionary index, or a {@code varint} length and the bytes of the value</li>
+ * </ul>
+ * </li>
+ * </ul>
+ * Values whose serialized bytes appear more than once in the chunk are written once in the dictionary.
+ *
+ * @author Ordinastie
+ */
+class BlockDataFormat
+{
+	/** Current version of the format. */
+	static final int VERSION = 1;
+	/** Flag set in the position short when the value is a dictionary reference. */
+	private static final int DICTIONARY_FLAG = 0x1000;
+	private static final int LOCAL_MASK = 0xFFF;
+
+	private BlockDataFormat()
+	{}
+
+	/**
+	 * Writes the {@link ChunkData} into the {@link ByteBuf}.
+	 *
+	 * @param <T> the generic type
+	 * @param chunkData the chunk data
+	 * @param buf the buf
+	 */
+	static <T> void write(ChunkData<T> chunkData, ByteBuf buf)
+	{
+		HandlerInfo<T> handlerInfo = chunkData.handlerInfo;
+		Map<Integer, List<Entry<Long, ByteBuf>>> sections = new HashMap<>();
+		Map<ByteBuf, Integer> counts = new HashMap<>();
+		chunkData.forEachEntry((pos, data) -> {
+			ByteBuf value = handlerInfo.toBytes.apply(data);
+			counts.merge(value, 1, Integer::sum);
+			sections.computeIfAbsent(BlockPosUtils.getY(pos) >> 4, s -> new ArrayList<>()).add(new SimpleEntry<>(pos, value));
+			return true;
+		});
+
+		//only values used multiple times go in the dictionary
+		Map<ByteBuf, Integer> dictionary = new HashMap<>();
+		for (Entry<ByteBuf, Integer> entry : counts.entrySet())
+		{
+			if (entry.getValue() > 1)
+				dictionary.put(entry.getKey(), dictionary.size());
+		}
+
+		buf.writeByte(VERSION);
+		writeVarInt(buf, dictionary.size());
+		ByteBuf[] values = new ByteBuf[dictionary.size()];
+		dictionary.forEach((value, index) -> values[index] = value);
+		for (ByteBuf value : values)
+		{
+			writeVarInt(buf, value.readableBytes());
+			buf.writeBytes(value, value.readerIndex(), value.readableBytes());
+		}
+
+		writeVarInt(buf, sections.size());
+		for (Entry<Integer, List<Entry<Long, ByteBuf>>> section : sections.entrySet())
+		{
+			buf.writeByte(section.getKey());
+			writeVarInt(buf, section.getValue().size());
+			for (Entry<Long, ByteBuf> entry : section.getValue())
+			{
+				long pos = entry.getKey();
+				int local = (BlockPosUtils.getY(pos) & 15) << 8 | (BlockPosUtils.getZ(pos) & 15) << 4 | (BlockPosUtils.getX(pos) & 15);
+				Integer index = dictionary.get(entry.getValue());
+				if (index != null)
+				{
+					buf.writeShort(local | DICTIONARY_FLAG);
+					writeVarInt(buf, index);
+				}
+				else
+				{
+					ByteBuf value = entry.getValue();
+					buf.writeShort(local);
+					writeVarInt(buf, value.readableBytes());
+					buf.writeBytes(value, value.readerIndex(), value.readableBytes());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the data from the {@link ByteBuf}.
+	 *
+	 * @param <T> the generic type
+	 * @param handlerInfo the handler info
+	 * @param chunkX the X coordinate of the chunk the data belongs to
+	 * @param chunkZ the Z coordinate of the chunk the data belongs to
+	 * @param buf the buf
+	 * @return the data by position, or null if the version is unknown
+	 */
+	static <T> TLongObjectHashMap<T> read(HandlerInfo<T> handlerInfo, int chunkX, int chunkZ, ByteBuf buf)
+	{
+		int version = buf.readUnsignedByte();
+		if (version != VERSION)
+		{
+			MalisisCore.log.error("Unknown block data format version {} for {} in chunk {},{}, data will be saved back unchanged and changes to it ignored",
+					version,
+					handlerInfo.identifier,
+					chunkX,
+					chunkZ);
+			return null;
+		}
+
+		TLongObjectHashMap<T> data = new TLongObjectHashMap<>();
+		ByteBuf[] dictionary = new ByteBuf[readVarInt(buf)];
+		for (int i = 0; i < dictionary.length; i++)
+			dictionary[i] = buf.readSlice(readVarInt(buf));
+
+		int sections = readVarInt(buf);
+		for (int s = 0; s < sections; s++)
+		{
+			int sectionY = buf.readByte();
+			int count = readVarInt(buf);
+			for (int i = 0; i < count; i++)
+			{
+				int packed = buf.readUnsignedShort();
+				int local = packed & LOCAL_MASK;
+				ByteBuf value = (packed & DICTIONARY_FLAG) != 0 ? dictionary[readVarInt(buf)].duplicate() : buf.readSlice(readVarInt(buf));
+				long pos = BlockPosUtils.toLong(chunkX << 4 | local & 15, sectionY << 4 | local >> 8, chunkZ << 4 | (local >> 4) & 15);
+				data.put(pos, handlerInfo.fromBytes.apply(value));
+			}
+		}
+		return data;
+	}
+
+	private static void writeVarInt(ByteBuf buf, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			buf.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		buf.writeByte(value);
+	}
+
+	private static int readVarInt(ByteBuf buf)
+	{
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = buf.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -25,33 +25,46 @@
 package net.malisis.core.util.blockdata;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.locks.StampedLock;
 
 import com.google.common.base.Function;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.procedure.TLongObjectProcedure;
+import gnu.trove.set.hash.TLongHashSet;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import net.malisis.core.MalisisCore;
+import net.malisis.core.MalisisCoreSettings;
 import net.malisis.core.asm.AsmUtils;
 import net.malisis.core.registry.AutoLoad;
 import net.malisis.core.util.Silenced;
 import net.malisis.core.util.Utils;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.ChunkCache;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.ChunkDataEvent;
-import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.ChunkWatchEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.client.FMLClientHandler;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 
 /**
  * {@link BlockDataHandler} handles custom data being stored for a specific {@link BlockPos}.
@@ -65,11 +78,17 @@ import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
  * {@link #getData(String, IBlockAccess, BlockPos)} and {@link #removeData(String, IBlockAccess, BlockPos)} with the corresponding
  * identifier.
  *
+ * <p>
+ * The data is attached directly to the {@link Chunk} objects (see {@link IBlockDataChunk}), indexed by the id given to the identifier when
+ * registered, so it is shared by all the threads accessing the chunk and is discarded along with it.
+ *
  * @author Ordinastie
  */
 @AutoLoad
 public class BlockDataHandler
 {
+	/** Key of the compound holding the data of all the handlers in the chunk NBT. */
+	private static final String NBT_KEY = "MalisisBlockData";
 	private static BlockDataHandler instance = new BlockDataHandler();
 	private static Field chunkCacheField;
 	private static Class<?> chunkCacheClass;
@@ -85,7 +104,12 @@ public class BlockDataHandler
 	}
 
 	private Map<String, HandlerInfo<?>> handlerInfos = new HashMap<>();
-	private static final ThreadLocal<Table<String, Chunk, ChunkData<?>>> datas = ThreadLocal.withInitial(HashBasedTable::create);
+	/** Registered {@link HandlerInfo HandlerInfos}, indexed by id. */
+	private HandlerInfo<?>[] handlers = new HandlerInfo<?>[0];
+	/** Server only. Positions modified during the current tick, for each chunk and handler id. Only accessed from the server thread. */
+	private Map<World, Map<Chunk, TLongHashSet[]>> pendingDeltas = new IdentityHashMap<>();
+	/** Server only. Chunks waiting to have their data sent to each player. */
+	private Map<EntityPlayerMP, BlockDataStream> streams = new IdentityHashMap<>();
 
 	private BlockDataHandler()
 	{
@@ -121,61 +145,99 @@ public class BlockDataHandler
 	}
 
 	/**
-	 * Gets the {@link ChunkData} for the specified identifier and {@link BlockPos}
+	 * Gets the {@link HandlerInfo} registered for the identifier.
 	 *
 	 * @param <T> the generic type
 	 * @param identifier the identifier
+	 * @return the handler info
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> HandlerInfo<T> handlerInfo(String identifier)
+	{
+		return (HandlerInfo<T>) handlerInfos.get(identifier);
+	}
+
+	/**
+	 * Gets the {@link ChunkData} for the specified {@link HandlerInfo} and {@link BlockPos}
+	 *
+	 * @param <T> the generic type
+	 * @param handlerInfo the handler info
 	 * @param world the world
 	 * @param pos the pos
 	 * @return the chunk data
 	 */
-	private <T> ChunkData<T> chunkData(String identifier, World world, BlockPos pos)
+	private <T> ChunkData<T> chunkData(HandlerInfo<T> handlerInfo, World world, BlockPos pos)
 	{
-		return world != null ? chunkData(identifier, world, world.getChunkFromBlockCoords(pos)) : null;
+		return world != null ? chunkData(handlerInfo, world.getChunkFromBlockCoords(pos)) : null;
 	}
 
 	/**
-	 * Gets the {@link ChunkData} for the specified identifier and {@link Chunk}.
+	 * Gets the {@link ChunkData} for the specified {@link HandlerInfo} and {@link Chunk}.
 	 *
 	 * @param <T> the generic type
-	 * @param identifier the identifier
-	 * @param world the world
+	 * @param handlerInfo the handler info
 	 * @param chunk the chunk
 	 * @return the chunk data
 	 */
 	@SuppressWarnings("unchecked")
-	private <T> ChunkData<T> chunkData(String identifier, World world, Chunk chunk)
+	private <T> ChunkData<T> chunkData(HandlerInfo<T> handlerInfo, Chunk chunk)
 	{
-		Table<String, Chunk, ChunkData<?>> data = datas.get();
-		return (ChunkData<T>) data.get(identifier, chunk);
-
+		ChunkData<?>[] data = ((IBlockDataChunk) chunk).getBlockData();
+		return data != null && handlerInfo.id < data.length ? (ChunkData<T>) data[handlerInfo.id] : null;
 	}
 
 	/**
-	 * Creates the {@link ChunkData} for specified identifier for the {@link Chunk} at the {@link BlockPos}.
+	 * Gets the {@link ChunkData} for the specified {@link HandlerInfo} and {@link Chunk}, creating it if necessary.
 	 *
 	 * @param <T> the generic type
-	 * @param identifier the identifier
-	 * @param world the world
-	 * @param pos the pos
+	 * @param handlerInfo the handler info
+	 * @param chunk the chunk
 	 * @return the chunk data
 	 */
-	@SuppressWarnings("unchecked")
-	private <T> ChunkData<T> createChunkData(String identifier, World world, BlockPos pos)
+	private <T> ChunkData<T> getOrCreateChunkData(HandlerInfo<T> handlerInfo, Chunk chunk)
 	{
-		Chunk chunk = world.getChunkFromBlockCoords(pos);
+		ChunkData<T> chunkData = chunkData(handlerInfo, chunk);
+		if (chunkData != null)
+			return chunkData;
 
-		//System.out.println("createChunkData (" + chunk.xPosition + "/" + chunk.zPosition + ") for " + identifier);
+		synchronized (chunk)
+		{
+			//check again now that we hold the lock
+			chunkData = chunkData(handlerInfo, chunk);
+			if (chunkData == null)
+			{
+				chunkData = new ChunkData<>(handlerInfo);
+				attachChunkData(chunk, chunkData);
+			}
+			return chunkData;
+		}
+	}
 
-		ChunkData<T> chunkData = new ChunkData<>((HandlerInfo<T>) handlerInfos.get(identifier));
-		datas.get().put(identifier, chunk, chunkData);
-		return chunkData;
+	/**
+	 * Attaches the {@link ChunkData} to the {@link Chunk}, replacing any previous one for the same {@link HandlerInfo}.<br>
+	 * The array is copied so that threads currently reading it are not affected.
+	 *
+	 * @param chunk the chunk
+	 * @param chunkData the chunk data
+	 */
+	private void attachChunkData(Chunk chunk, ChunkData<?> chunkData)
+	{
+		synchronized (chunk)
+		{
+			IBlockDataChunk holder = (IBlockDataChunk) chunk;
+			ChunkData<?>[] data = holder.getBlockData();
+			int id = chunkData.handlerInfo.id;
+			data = data == null ? new ChunkData<?>[handlers.length] : Arrays.copyOf(data, Math.max(data.length, handlers.length));
+			data[id] = chunkData;
+			holder.setBlockData(data);
+		}
 	}
 
 	//#region Events
 	/**
-	 * Saves the data in NBT for the {@link Chunk}.<br>
-	 * Also unloads the data if the <code>Chunk</code> is marked as <i>unloaded</i>.
+	 * Loads the data from NBT for the {@link Chunk}.<br>
+	 * Data saved in the legacy format (directly under the identifier key) is still read.<br>
+	 * The bytes are kept as is and only decoded when the data is first accessed, or when the chunk is watched.
 	 *
 	 * @param event the event
 	 */
@@ -183,90 +245,262 @@ public class BlockDataHandler
 	public void onDataLoad(ChunkDataEvent.Load event)
 	{
 		NBTTagCompound nbt = event.getData();
+		NBTTagCompound tag = nbt.getCompoundTag(NBT_KEY);
 
-		for (HandlerInfo<?> handlerInfo : handlerInfos.values())
+		Chunk chunk = event.getChunk();
+		for (HandlerInfo<?> handlerInfo : handlers)
 		{
-			if (!nbt.hasKey(handlerInfo.identifier))
-				continue;
-
-			//			MalisisCore.message("onDataLoad (" + event.getChunk().xPosition + "/" + event.getChunk().zPosition + ") for "
-			//					+ handlerInfo.identifier);
-			ChunkData<?> chunkData = new ChunkData<>(handlerInfo);
-			chunkData.fromBytes(Unpooled.copiedBuffer(nbt.getByteArray(handlerInfo.identifier)));
-			datas.get().put(handlerInfo.identifier, event.getChunk(), chunkData);
+			if (tag.hasKey(handlerInfo.identifier))
+				attachChunkData(chunk, new ChunkData<>(handlerInfo, chunk, tag.getByteArray(handlerInfo.identifier), false));
+			else if (nbt.hasKey(handlerInfo.identifier))
+				//legacy format, stored directly in the chunk tag
+				attachChunkData(chunk, new ChunkData<>(handlerInfo, chunk, nbt.getByteArray(handlerInfo.identifier), true));
 		}
 	}
 
 	/**
-	 * On data save.
+	 * Saves the data in NBT for the {@link Chunk}, using the {@link BlockDataFormat}.<br>
+	 * A single pooled buffer is used for all the handlers, and copied once into the NBT byte array.<br>
+	 * No unloading is needed as the data is discarded along with the {@code Chunk}.
 	 *
 	 * @param event the event
 	 */
 	@SubscribeEvent
 	public void onDataSave(ChunkDataEvent.Save event)
 	{
-		NBTTagCompound nbt = event.getData();
+		NBTTagCompound tag = new NBTTagCompound();
+		ByteBuf buf = null;
+		try
+		{
+			for (HandlerInfo<?> handlerInfo : handlers)
+			{
+				ChunkData<?> chunkData = chunkData(handlerInfo, event.getChunk());
+				if (chunkData == null || !chunkData.hasData())
+					continue;
+
+				if (buf == null)
+					buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+				buf.clear();
+				chunkData.save(buf);
+				byte[] bytes = new byte[buf.readableBytes()];
+				buf.readBytes(bytes);
+				tag.setByteArray(handlerInfo.identifier, bytes);
+			}
+		}
+		finally
+		{
+			if (buf != null)
+				buf.release();
+		}
+
+		if (!tag.hasNoTags())
+			event.getData().setTag(NBT_KEY, tag);
+	}
+
+	/**
+	 * Server only.<br>
+	 * Queues the chunk data to be sent to the player when they start watching it.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkWatched(ChunkWatchEvent.Watch event)
+	{
+		ChunkPos pos = event.getChunk();
+		if (hasData(event.getPlayer().world.getChunkFromChunkCoords(pos.x, pos.z)))
+			streams.computeIfAbsent(event.getPlayer(), p -> new BlockDataStream()).add(pos.x, pos.z);
+	}
+
+	/**
+	 * Server only.<br>
+	 * Removes the chunk from the data to be sent to the player.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkUnwatched(ChunkWatchEvent.UnWatch event)
+	{
+		BlockDataStream stream = streams.get(event.getPlayer());
+		if (stream != null)
+			stream.remove(event.getChunk().x, event.getChunk().z);
+	}
+
+	@SubscribeEvent
+	public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event)
+	{
+		streams.remove(event.player);
+	}
 
-		for (HandlerInfo<?> handlerInfo : handlerInfos.values())
+	/**
+	 * Server only.<br>
+	 * Sends the queued chunk data to each player, closest chunks first, bundled in a single message.<br>
+	 * Chunks are added to the message until {@link MalisisCoreSettings#blockDataBytesPerTick} is reached (at least one chunk is always
+	 * sent).
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase != TickEvent.Phase.END || streams.isEmpty())
+			return;
+
+		int budget = MalisisCoreSettings.blockDataBytesPerTick.get();
+		Iterator<Entry<EntityPlayerMP, BlockDataStream>> it = streams.entrySet().iterator();
+		while (it.hasNext())
 		{
-			ChunkData<?> chunkData = chunkData(handlerInfo.identifier, event.getWorld(), event.getChunk());
-			if (chunkData != null && chunkData.hasData())
+			Entry<EntityPlayerMP, BlockDataStream> entry = it.next();
+			sendStream(entry.getKey(), entry.getValue(), budget);
+			if (entry.getValue().isEmpty())
+				it.remove();
+		}
+	}
+
+	/**
+	 * Sends the queued chunk data to the player, within the budget.
+	 *
+	 * @param player the player
+	 * @param stream the stream
+	 * @param budget the budget, in bytes
+	 */
+	private void sendStream(EntityPlayerMP player, BlockDataStream stream, int budget)
+	{
+		ByteBuf frames = Unpooled.buffer();
+		for (long key : stream.ordered(player.chunkCoordX, player.chunkCoordZ))
+		{
+			if (budget > 0 && frames.writerIndex() >= budget)
+				break;
+
+			stream.remove(key);
+			int x = BlockDataStream.x(key);
+			int z = BlockDataStream.z(key);
+			Chunk chunk = player.getServerWorld().getChunkProvider().getLoadedChunk(x, z);
+			if (chunk == null)
+				continue;
+
+			for (HandlerInfo<?> handlerInfo : handlers)
 			{
-				//				MalisisCore.message("onDataSave (" + event.getChunk().xPosition + "/" + event.getChunk().zPosition + ") for "
-				//						+ handlerInfo.identifier);
-				ByteBuf buf = Unpooled.buffer();
-				chunkData.toBytes(buf);
-				nbt.setByteArray(handlerInfo.identifier, buf.capacity(buf.writerIndex()).array());
+				ChunkData<?> chunkData = chunkData(handlerInfo, chunk);
+				if (chunkData != null && chunkData.hasData())
+					BlockDataMessage.writeFrame(frames, x, z, handlerInfo.identifier, chunkData::toBytes);
 			}
+		}
 
-			//unload data on save because saving is called after unload
-			if (event.getChunk().unloadQueued)
-				datas.get().remove(handlerInfo.identifier, event.getChunk());
+		if (frames.isReadable())
+			BlockDataMessage.sendBlockData(frames, player);
+	}
 
+	/**
+	 * Checks whether the {@link Chunk} holds any data.
+	 *
+	 * @param chunk the chunk
+	 * @return true, if successful
+	 */
+	private boolean hasData(Chunk chunk)
+	{
+		ChunkData<?>[] data = ((IBlockDataChunk) chunk).getBlockData();
+		if (data == null)
+			return false;
+		for (ChunkData<?> chunkData : data)
+		{
+			if (chunkData != null && chunkData.hasData())
+				return true;
 		}
+		return false;
 	}
 
 	/**
-	 * Unloads the data for the {@link Chunk}.<br>
-	 * Does the process client side only because unloading happens before saving on the server.
+	 * Server only.<br>
+	 * Sends the changes queued during the tick to the clients watching the chunks, once per chunk and handler.
 	 *
 	 * @param event the event
 	 */
 	@SubscribeEvent
-	public void onDataUnload(ChunkEvent.Unload event)
+	public void onWorldTick(TickEvent.WorldTickEvent event)
 	{
-		//only unload on client, server unloads on save
-		if (!event.getWorld().isRemote)
+		if (event.phase != TickEvent.Phase.END || event.world.isRemote)
+			return;
+
+		Map<Chunk, TLongHashSet[]> pending = pendingDeltas.remove(event.world);
+		if (pending == null)
 			return;
 
-		for (HandlerInfo<?> handlerInfo : handlerInfos.values())
+		for (Entry<Chunk, TLongHashSet[]> entry : pending.entrySet())
 		{
-			datas.get().remove(handlerInfo.identifier, event.getChunk());
+			TLongHashSet[] positions = entry.getValue();
+			for (int id = 0; id < positions.length; id++)
+			{
+				if (positions[id] == null)
+					continue;
+
+				ChunkData<?> chunkData = chunkData(handlers[id], entry.getKey());
+				if (chunkData == null)
+					continue;
+
+				ByteBuf buf = Unpooled.buffer();
+				positions[id].forEach(pos -> {
+					chunkData.writeEntry(buf, pos);
+					return true;
+				});
+				BlockDataMessage.sendBlockDataDelta(entry.getKey(), handlers[id].identifier, buf);
+			}
 		}
 	}
 
 	/**
 	 * Server only.<br>
-	 * Sends the chunks coordinates to the client when they get watched by them.
+	 * Discards the changes queued for an unloaded {@link World}.
 	 *
 	 * @param event the event
 	 */
 	@SubscribeEvent
-	public void onChunkWatched(ChunkWatchEvent.Watch event)
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		if (!event.getWorld().isRemote)
+			pendingDeltas.remove(event.getWorld());
+	}
+
+	/**
+	 * Server only.<br>
+	 * Queues the {@link BlockPos} to be sent to the clients at the end of the tick.<br>
+	 * The value sent is the one stored at that time, so multiple changes for the same position are only sent once.<br>
+	 * Calls from other threads are handed over to the server thread.
+	 *
+	 * @param world the world
+	 * @param chunk the chunk
+	 * @param handlerInfo the handler info
+	 * @param pos the pos
+	 */
+	private void queueDelta(World world, Chunk chunk, HandlerInfo<?> handlerInfo, long pos)
 	{
-		Chunk chunk = event.getPlayer().world.getChunkFromChunkCoords(event.getChunk().x, event.getChunk().z);
-		for (HandlerInfo<?> handlerInfo : handlerInfos.values())
+		MinecraftServer server = world.getMinecraftServer();
+		if (server != null && !server.isCallingFromMinecraftThread())
 		{
-			ChunkData<?> chunkData = instance.chunkData(handlerInfo.identifier, chunk.getWorld(), chunk);
-			if (chunkData != null && chunkData.hasData())
-				BlockDataMessage.sendBlockData(chunk, handlerInfo.identifier, chunkData.toBytes(Unpooled.buffer()), event.getPlayer());
+			//the world may have been unloaded in the meantime
+			server.addScheduledTask(() -> {
+				if (DimensionManager.getWorld(world.provider.getDimension()) == world)
+					queueDelta(world, chunk, handlerInfo, pos);
+			});
+			return;
 		}
+
+		TLongHashSet[] positions = pendingDeltas.computeIfAbsent(world, w -> new IdentityHashMap<>())
+												.computeIfAbsent(chunk, c -> new TLongHashSet[handlers.length]);
+		if (handlerInfo.id >= positions.length)
+		{
+			positions = Arrays.copyOf(positions, handlers.length);
+			pendingDeltas.get(world).put(chunk, positions);
+		}
+		if (positions[handlerInfo.id] == null)
+			positions[handlerInfo.id] = new TLongHashSet();
+		positions[handlerInfo.id].add(pos);
 	}
 
 	//#end Events
 
 	/**
-	 * Registers a custom block data with the specified identifier.
+	 * Registers a custom block data with the specified identifier.<br>
+	 * A dense id is given to the identifier, used to index the data attached to the chunks.
 	 *
 	 * @param <T> the generic type
 	 * @param identifier the identifier
@@ -275,7 +509,17 @@ public class BlockDataHandler
 	 */
 	public static <T> void registerBlockData(String identifier, Function<ByteBuf, T> fromBytes, Function<T, ByteBuf> toBytes)
 	{
-		instance.handlerInfos.put(identifier, new HandlerInfo<>(identifier, fromBytes, toBytes));
+		synchronized (instance)
+		{
+			HandlerInfo<?> existing = instance.handlerInfos.get(identifier);
+			int id = existing != null ? existing.id : instance.handlers.length;
+			HandlerInfo<T> handlerInfo = new HandlerInfo<>(id, identifier, fromBytes, toBytes);
+
+			HandlerInfo<?>[] handlers = Arrays.copyOf(instance.handlers, Math.max(id + 1, instance.handlers.length));
+			handlers[id] = handlerInfo;
+			instance.handlers = handlers;
+			instance.handlerInfos.put(identifier, handlerInfo);
+		}
 	}
 
 	/**
@@ -289,7 +533,10 @@ public class BlockDataHandler
 	 */
 	public static <T> T getData(String identifier, IBlockAccess world, BlockPos pos)
 	{
-		ChunkData<T> chunkData = instance.<T> chunkData(identifier, instance.world(world), pos);
+		HandlerInfo<T> handlerInfo = instance.handlerInfo(identifier);
+		if (handlerInfo == null)
+			return null;
+		ChunkData<T> chunkData = instance.chunkData(handlerInfo, instance.world(world), pos);
 		return chunkData != null ? chunkData.getData(pos) : null;
 	}
 
@@ -310,6 +557,7 @@ public class BlockDataHandler
 	/**
 	 * Sets the custom data to be stored at the {@link BlockPos} for the specified identifier and eventually sends the data to the clients
 	 * watching the chunk.
+	 * The data is not changed if the data stored in the chunk is in a format version that can't be read.
 	 *
 	 * @param <T> the generic type
 	 * @param identifier the identifier
@@ -320,18 +568,20 @@ public class BlockDataHandler
 	 */
 	public static <T> void setData(String identifier, IBlockAccess world, BlockPos pos, T data, boolean sendToClients)
 	{
+		HandlerInfo<T> handlerInfo = instance.handlerInfo(identifier);
+		if (handlerInfo == null)
+			throw new IllegalArgumentException("No block data registered for " + identifier);
+
 		World w = instance.world(world);
-		ChunkData<T> chunkData = instance.<T> chunkData(identifier, w, pos);
-		if (chunkData == null)
-			chunkData = instance.<T> createChunkData(identifier, instance.world(world), pos);
+		if (w == null)
+			return;
 
-		//MalisisCore.message("SetData " + identifier + " for " + pos + " > " + data);
-		chunkData.setData(pos, data);
+		Chunk chunk = w.getChunkFromBlockCoords(pos);
+		ChunkData<T> chunkData = instance.getOrCreateChunkData(handlerInfo, chunk);
+		if (!chunkData.setData(pos, data))
+			return;
 		if (sendToClients && !w.isRemote)
-		{
-			ByteBuf buf = chunkData.toBytes(Unpooled.buffer());
-			Utils.getLoadedChunk(w, pos).ifPresent(chunk -> BlockDataMessage.sendBlockData(chunk, identifier, buf));
-		}
+			instance.queueDelta(w, chunk, handlerInfo, pos.toLong());
 	}
 
 	/**
@@ -364,24 +614,26 @@ public class BlockDataHandler
 	}
 
 	/**
-	 * Called on the client when receiving the data from the server, either because client started to watch the chunk or server manually
-	 * sent the data.
+	 * Called on the client when receiving the data from the server, either because client started to watch the chunk (full data) or
+	 * server sent the changes made during a tick (delta).
 	 *
 	 * @param chunkX the chunk X
 	 * @param chunkZ the chunk Z
 	 * @param identifier the identifier
 	 * @param data the data
+	 * @param delta whether the data only holds changes to apply to the current data
 	 */
-	static void setBlockData(int chunkX, int chunkZ, String identifier, ByteBuf data)
+	static void setBlockData(int chunkX, int chunkZ, String identifier, ByteBuf data, boolean delta)
 	{
 		HandlerInfo<?> handlerInfo = instance.handlerInfos.get(identifier);
 		if (handlerInfo == null)
 			return;
 
-		//MalisisCore.message("Received blockData (" + chunkX + "/" + chunkZ + ") for " + identifier);
 		Chunk chunk = Utils.getClientWorld().getChunkFromChunkCoords(chunkX, chunkZ);
-		ChunkData<?> chunkData = new ChunkData<>(handlerInfo).fromBytes(data);
-		datas.get().put(handlerInfo.identifier, chunk, chunkData);
+		if (delta)
+			instance.getOrCreateChunkData(handlerInfo, chunk).fromBytes(data);
+		else
+			instance.attachChunkData(chunk, new ChunkData<>(handlerInfo).fromBytes(data));
 	}
 
 	public static BlockDataHandler get()
@@ -396,12 +648,14 @@ public class BlockDataHandler
 	 */
 	public static class HandlerInfo<T>
 	{
+		final int id;
 		String identifier;
-		private Function<ByteBuf, T> fromBytes;
-		private Function<T, ByteBuf> toBytes;
+		Function<ByteBuf, T> fromBytes;
+		Function<T, ByteBuf> toBytes;
 
-		public HandlerInfo(String identifier, Function<ByteBuf, T> fromBytes, Function<T, ByteBuf> toBytes)
+		public HandlerInfo(int id, String identifier, Function<ByteBuf, T> fromBytes, Function<T, ByteBuf> toBytes)
 		{
+			this.id = id;
 			this.identifier = identifier;
 			this.fromBytes = fromBytes;
 			this.toBytes = toBytes;
@@ -409,62 +663,275 @@ public class BlockDataHandler
 	}
 
 	/**
-	 * Internal data storage for a specified {@link HandlerInfo}.
+	 * Internal data storage for a specified {@link HandlerInfo}.<br>
+	 * Positions are stored as {@link BlockPos#toLong()} in a primitive map modified in place behind a {@link StampedLock}, so the data can
+	 * be read from any thread without boxing, and reads usually don't block.<br>
+	 * Data loaded from NBT is kept as raw bytes until first accessed. Bytes in a format version that can't be read are kept and saved back
+	 * unchanged, so the data is not lost, and changes to that data are ignored.
 	 *
 	 * @param <T> the generic type
 	 */
-	static class ChunkData<T>
+	public static class ChunkData<T>
 	{
-		private HandlerInfo<T> handlerInfos;
-		private HashMap<BlockPos, T> data = new HashMap<>();
+		HandlerInfo<T> handlerInfo;
+		/** Guards {@link #data}. Reads are optimistic and only take the read lock when a write happened concurrently. */
+		private final StampedLock lock = new StampedLock();
+		/** Data by position. */
+		private TLongObjectHashMap<T> data = new TLongObjectHashMap<>();
+		/** Bytes loaded from NBT not decoded yet, or that could not be decoded. */
+		private volatile byte[] raw;
+		/** Whether {@link #raw} is in an unknown format version. */
+		private volatile boolean unreadable;
+		/** Whether a change was already ignored because the data is {@link #unreadable}. */
+		private volatile boolean warned;
+		private boolean legacy;
+		private int chunkX;
+		private int chunkZ;
+
+		ChunkData(HandlerInfo<T> handlerInfo)
+		{
+			this.handlerInfo = handlerInfo;
+		}
 
-		public ChunkData(HandlerInfo<T> handlerInfo)
+		ChunkData(HandlerInfo<T> handlerInfo, Chunk chunk, byte[] raw, boolean legacy)
 		{
-			this.handlerInfos = handlerInfo;
+			this(handlerInfo);
+			this.chunkX = chunk.x;
+			this.chunkZ = chunk.z;
+			this.raw = raw;
+			this.legacy = legacy;
+		}
+
+		/**
+		 * Decodes the bytes loaded from NBT, if not already done.
+		 */
+		private void decode()
+		{
+			if (raw == null || unreadable)
+				return;
+
+			long stamp = lock.writeLock();
+			try
+			{
+				if (raw == null || unreadable)
+					return;
+
+				ByteBuf buf = Unpooled.wrappedBuffer(raw);
+				TLongObjectHashMap<T> decoded;
+				if (legacy)
+					decoded = readEntries(new TLongObjectHashMap<>(), buf);
+				else
+					decoded = BlockDataFormat.read(handlerInfo, chunkX, chunkZ, buf);
+				//keep the bytes to save them back as they were
+				if (decoded == null)
+				{
+					unreadable = true;
+					return;
+				}
+				data = decoded;
+				raw = null;
+			}
+			finally
+			{
+				lock.unlockWrite(stamp);
+			}
 		}
 
 		public boolean hasData()
 		{
-			return data.size() > 0;
+			return raw != null || data.size() > 0;
 		}
 
 		public T getData(BlockPos pos)
 		{
-			return data.get(pos);
+			decode();
+			return get(pos.toLong());
 		}
 
-		public void setData(BlockPos pos, T blockData)
+		/**
+		 * Gets the data stored for the position.<br>
+		 * The map is first read without locking, and read again under the read lock if it was modified meanwhile.
+		 *
+		 * @param pos the pos
+		 * @return the data
+		 */
+		private T get(long pos)
 		{
-			if (blockData != null)
-				data.put(pos, blockData);
-			else
-				data.remove(pos);
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0)
+			{
+				try
+				{
+					T value = data.get(pos);
+					if (lock.validate(stamp))
+						return value;
+				}
+				catch (RuntimeException e)
+				{
+					//the map was rehashed while reading, read again under the lock
+				}
+			}
+
+			stamp = lock.readLock();
+			try
+			{
+				return data.get(pos);
+			}
+			finally
+			{
+				lock.unlockRead(stamp);
+			}
+		}
+
+		/**
+		 * Sets the data for the position.<br>
+		 * Does nothing if the data loaded could not be read, as it would be lost when the raw bytes are saved back.
+		 *
+		 * @param pos the pos
+		 * @param blockData the block data, or null to remove it
+		 * @return true, if the data was changed
+		 */
+		public boolean setData(BlockPos pos, T blockData)
+		{
+			decode();
+			if (unreadable)
+			{
+				if (!warned)
+				{
+					warned = true;
+					MalisisCore.log.warn("Ignoring changes to {} block data in chunk {},{} as its format version is unknown",
+							handlerInfo.identifier,
+							chunkX,
+							chunkZ);
+				}
+				return false;
+			}
+
+			long key = pos.toLong();
+			long stamp = lock.writeLock();
+			try
+			{
+				if (blockData != null)
+					data.put(key, blockData);
+				else
+					data.remove(key);
+			}
+			finally
+			{
+				lock.unlockWrite(stamp);
+			}
+			return true;
+		}
+
+		/**
+		 * Calls the procedure for each entry, under the read lock.
+		 *
+		 * @param procedure the procedure
+		 */
+		void forEachEntry(TLongObjectProcedure<T> procedure)
+		{
+			decode();
+			long stamp = lock.readLock();
+			try
+			{
+				data.forEachEntry(procedure);
+			}
+			finally
+			{
+				lock.unlockRead(stamp);
+			}
 		}
 
+		/**
+		 * Reads the entries from the {@link ByteBuf}.<br>
+		 * A negative length means the data for that position was removed.
+		 *
+		 * @param buf the buf
+		 * @return the chunk data
+		 */
 		public ChunkData<T> fromBytes(ByteBuf buf)
+		{
+			decode();
+			long stamp = lock.writeLock();
+			try
+			{
+				readEntries(data, buf);
+			}
+			finally
+			{
+				lock.unlockWrite(stamp);
+			}
+			return this;
+		}
+
+		private TLongObjectHashMap<T> readEntries(TLongObjectHashMap<T> data, ByteBuf buf)
 		{
 			while (buf.isReadable())
 			{
-				BlockPos pos = BlockPos.fromLong(buf.readLong());
-				ByteBuf b = buf.readBytes(buf.readInt());
-				T blockData = handlerInfos.fromBytes.apply(b);
+				long pos = buf.readLong();
+				int length = buf.readInt();
+				if (length < 0)
+				{
+					data.remove(pos);
+					continue;
+				}
+				ByteBuf b = buf.readBytes(length);
+				T blockData = handlerInfo.fromBytes.apply(b);
 				data.put(pos, blockData);
 			}
-
-			return this;
+			return data;
 		}
 
 		public ByteBuf toBytes(ByteBuf buf)
 		{
-			for (Entry<BlockPos, T> entry : data.entrySet())
+			forEachEntry((pos, value) -> {
+				writeEntry(buf, pos, value);
+				return true;
+			});
+			return buf;
+		}
+
+		/**
+		 * Writes the data in the {@link BlockDataFormat} to be saved in NBT.<br>
+		 * Bytes loaded in the current format and never decoded, or in an unknown format, are written back as is.
+		 *
+		 * @param buf the buf
+		 */
+		void save(ByteBuf buf)
+		{
+			byte[] bytes = raw;
+			if (bytes != null && !legacy)
 			{
-				ByteBuf b = handlerInfos.toBytes.apply(entry.getValue());
-				buf.writeLong(entry.getKey().toLong());
-				buf.writeInt(b.writerIndex());
-				buf.writeBytes(b);
+				buf.writeBytes(bytes);
+				return;
 			}
-			return buf;
+			decode();
+			BlockDataFormat.write(this, buf);
+		}
+
+		/**
+		 * Writes the entry currently stored for the position, or a removal if there is none.
+		 *
+		 * @param buf the buf
+		 * @param pos the pos
+		 */
+		void writeEntry(ByteBuf buf, long pos)
+		{
+			decode();
+			writeEntry(buf, pos, get(pos));
+		}
+		private void writeEntry(ByteBuf buf, long pos, T value)
+		{
+			buf.writeLong(pos);
+			if (value == null)
+			{
+				buf.writeInt(-1);
+				return;
+			}
+			ByteBuf b = handlerInfo.toBytes.apply(value);
+			buf.writeInt(b.writerIndex());
+			buf.writeBytes(b);
 		}
 
 	}
-}
\ No newline at end of file
+}
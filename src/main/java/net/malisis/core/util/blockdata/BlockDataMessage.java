@@ -24,7 +24,10 @@
 
 package net.malisis.core.util.blockdata;
 
+import java.util.function.Consumer;
+
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.network.IMalisisMessageHandler;
 import net.malisis.core.registry.AutoLoad;
@@ -51,11 +54,46 @@ public class BlockDataMessage implements IMalisisMessageHandler<Packet, IMessage
 	@Override
 	public void process(Packet message, MessageContext ctx)
 	{
-		BlockDataHandler.setBlockData(message.x, message.z, message.identifier, message.data);
+		ByteBuf frames = message.frames;
+		while (frames.isReadable())
+		{
+			int x = frames.readInt();
+			int z = frames.readInt();
+			String identifier = ByteBufUtils.readUTF8String(frames);
+			ByteBuf data = frames.readSlice(frames.readInt());
+			BlockDataHandler.setBlockData(x, z, identifier, data, message.delta);
+		}
+	}
+
+	/**
+	 * Writes a frame holding the data for the specified chunk and identifier.
+	 *
+	 * @param frames the frames
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @param identifier the identifier
+	 * @param writer the writer for the data
+	 * @return the frames
+	 */
+	static ByteBuf writeFrame(ByteBuf frames, int chunkX, int chunkZ, String identifier, Consumer<ByteBuf> writer)
+	{
+		frames.writeInt(chunkX);
+		frames.writeInt(chunkZ);
+		ByteBufUtils.writeUTF8String(frames, identifier);
+		int index = frames.writerIndex();
+		frames.writeInt(0);
+		writer.accept(frames);
+		frames.setInt(index, frames.writerIndex() - index - 4);
+		return frames;
+	}
+
+	private static ByteBuf frame(Chunk chunk, String identifier, ByteBuf data)
+	{
+		return writeFrame(Unpooled.buffer(), chunk.x, chunk.z, identifier, buf -> buf.writeBytes(data));
 	}
 
 	/**
-	 * Sends the data to the specified {@link EntityPlayerMP}.
+	 * Sends the full data to the specified {@link EntityPlayerMP}.
 	 *
 	 * @param chunk the chunk
 	 * @param identifier the identifier
@@ -64,11 +102,23 @@ public class BlockDataMessage implements IMalisisMessageHandler<Packet, IMessage
 	 */
 	public static void sendBlockData(Chunk chunk, String identifier, ByteBuf data, EntityPlayerMP player)
 	{
-		MalisisCore.network.sendTo(new Packet(chunk, identifier, data), player);
+		sendBlockData(frame(chunk, identifier, data), player);
 	}
 
 	/**
-	 * Sends the data to all the players currently watching the specified {@link Chunk}.
+	 * Sends the full data held by the frames to the specified {@link EntityPlayerMP}.
+	 *
+	 * @param frames the frames
+	 * @param player the player
+	 * @see #writeFrame(ByteBuf, int, int, String, Consumer)
+	 */
+	static void sendBlockData(ByteBuf frames, EntityPlayerMP player)
+	{
+		MalisisCore.network.sendTo(new Packet(frames, false), player);
+	}
+
+	/**
+	 * Sends the full data to all the players currently watching the specified {@link Chunk}.
 	 *
 	 * @param chunk the chunk
 	 * @param identifer the identifer
@@ -76,43 +126,50 @@ public class BlockDataMessage implements IMalisisMessageHandler<Packet, IMessage
 	 */
 	public static void sendBlockData(Chunk chunk, String identifer, ByteBuf data)
 	{
-		MalisisCore.network.sendToPlayersWatchingChunk(new Packet(chunk, identifer, data), chunk);
+		MalisisCore.network.sendToPlayersWatchingChunk(new Packet(frame(chunk, identifer, data), false), chunk);
 	}
 
+	/**
+	 * Sends the changes to apply to the data to all the players currently watching the specified {@link Chunk}.
+	 *
+	 * @param chunk the chunk
+	 * @param identifer the identifer
+	 * @param data the data
+	 */
+	public static void sendBlockDataDelta(Chunk chunk, String identifer, ByteBuf data)
+	{
+		MalisisCore.network.sendToPlayersWatchingChunk(new Packet(frame(chunk, identifer, data), true), chunk);
+	}
+
+	/**
+	 * Message holding one or more frames of data, each one for a chunk and an identifier.
+	 */
 	public static class Packet implements IMessage
 	{
-		private int x;
-		private int z;
-		private String identifier;
-		private ByteBuf data;
+		private ByteBuf frames;
+		private boolean delta;
 
 		public Packet()
 		{}
 
-		public Packet(Chunk chunk, String identifier, ByteBuf data)
+		public Packet(ByteBuf frames, boolean delta)
 		{
-			this.x = chunk.x;
-			this.z = chunk.z;
-			this.identifier = identifier;
-			this.data = data;
+			this.frames = frames;
+			this.delta = delta;
 		}
 
 		@Override
 		public void fromBytes(ByteBuf buf)
 		{
-			x = buf.readInt();
-			z = buf.readInt();
-			identifier = ByteBufUtils.readUTF8String(buf);
-			data = buf.readBytes(buf.readableBytes());
+			delta = buf.readBoolean();
+			frames = buf.readBytes(buf.readableBytes());
 		}
 
 		@Override
 		public void toBytes(ByteBuf buf)
 		{
-			buf.writeInt(x);
-			buf.writeInt(z);
-			ByteBufUtils.writeUTF8String(buf, identifier);
-			buf.writeBytes(data);
+			buf.writeBoolean(delta);
+			buf.writeBytes(frames, frames.readerIndex(), frames.readableBytes());
 		}
 	}
 }
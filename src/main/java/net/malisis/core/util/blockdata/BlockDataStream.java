@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.blockdata;
+
+import java.util.Arrays;
+
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Server only.<br>
+ * Holds the chunks whose block data is waiting to be sent to a player.<br>
+ * Chunks are stored as {@link ChunkPos#asLong(int, int)}.
+ *
+ * @author Ordinastie
+ */
+class BlockDataStream
+{
+	private final TLongHashSet pending = new TLongHashSet();
+
+	void add(int chunkX, int chunkZ)
+	{
+		pending.add(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	void remove(int chunkX, int chunkZ)
+	{
+		pending.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	void remove(long chunk)
+	{
+		pending.remove(chunk);
+	}
+
+	boolean isEmpty()
+	{
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Gets the pending chunks, closest to the specified chunk first.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @return the chunks
+	 */
+	long[] ordered(int chunkX, int chunkZ)
+	{
+		long[] chunks = pending.toArray();
+		//sort on the squared distance, with the index in the lower bits
+		long[] keys = new long[chunks.length];
+		for (int i = 0; i < chunks.length; i++)
+		{
+			long dx = x(chunks[i]) - chunkX;
+			long dz = z(chunks[i]) - chunkZ;
+			keys[i] = (dx * dx + dz * dz) << 32 | i;
+		}
+		Arrays.sort(keys);
+
+		long[] ordered = new long[chunks.length];
+		for (int i = 0; i < keys.length; i++)
+			ordered[i] = chunks[(int) keys[i]];
+		return ordered;
+	}
+
+	static int x(long chunk)
+	{
+		return (int) chunk;
+	}
+
+	static int z(long chunk)
+	{
+		return (int) (chunk >>> 32);
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.blockdata;
+
+import net.malisis.core.util.blockdata.BlockDataHandler.ChunkData;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Interface added to {@link Chunk} via mixin to attach the {@link ChunkData} of each block data handler directly to the chunk.<br>
+ * The array is indexed by the id given to the handler when registered with {@link BlockDataHandler#registerBlockData}.
+ *
+ * @author Ordinastie
+ */
+public interface IBlockDataChunk
+{
+	/**
+	 * Gets the {@link ChunkData} array attached to this chunk.
+	 *
+	 * @return the block data, or null if none was attached yet
+	 */
+	public ChunkData<?>[] getBlockData();
+
+	/**
+	 * Attaches the {@link ChunkData} array to this chunk.
+	 *
+	 * @param blockData the block data
+	 */
+	public void setBlockData(ChunkData<?>[] blockData);
+}
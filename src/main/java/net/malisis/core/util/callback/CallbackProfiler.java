@@ -0,0 +1,279 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.callback;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.malisis.core.MalisisCommand;
+import net.malisis.core.MalisisCore;
+import net.malisis.core.registry.AutoLoad;
+
+/**
+ * Optional instrumentation for the {@link ICallback ICallbacks} processed by the {@link CallbackRegistry CallbackRegistries}.<br>
+ * When {@link #isEnabled() enabled}, records for each registered callback how many times its predicate was tested and passed, and the
+ * time spent in its predicate and call.<br>
+ * When disabled, registries only read a volatile flag once per dispatch.
+ *
+ * <p>
+ * Controlled with {@code /malisis debug callbacks [on|off|reset|<count>]}.
+ *
+ * @author Ordinastie
+ */
+@AutoLoad
+public class CallbackProfiler
+{
+	private static final int DEFAULT_REPORT_SIZE = 10;
+	/** Number of histogram buckets per power of two. */
+	private static final int SUB_BUCKETS = 4;
+
+	private static volatile boolean enabled = false;
+	/** Class that registered each callback, captured at registration. */
+	private static Map<Object, String> owners = new ConcurrentHashMap<>();
+	private static Map<Object, CallbackStats> stats = new ConcurrentHashMap<>();
+
+	static
+	{
+		MalisisCommand.registerDebug("callbacks", CallbackProfiler::debug);
+	}
+
+	private CallbackProfiler()
+	{}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled)
+	{
+		CallbackProfiler.enabled = enabled;
+	}
+
+	public static void reset()
+	{
+		stats.clear();
+	}
+
+	/**
+	 * Called when a callback is registered, to find the class that registered it.
+	 *
+	 * @param registry the registry
+	 * @param entry the entry
+	 */
+	static void registered(CallbackRegistry<?, ?, ?> registry, Object entry)
+	{
+		owners.put(entry, registry.getClass().getSimpleName() + " <- " + findOwner());
+	}
+
+	/**
+	 * Finds the first class in the stack that is not a registry.
+	 *
+	 * @return the owner class name
+	 */
+	private static String findOwner()
+	{
+		for (StackTraceElement element : new Throwable().getStackTrace())
+		{
+			String className = element.getClassName();
+			if (!className.startsWith("net.malisis.core.util.callback.") && !className.startsWith("net.malisis.core.registry.")
+					&& !className.startsWith("java."))
+				return className + "." + element.getMethodName();
+		}
+		return "unknown";
+	}
+
+	/**
+	 * Records the evaluation of a registered callback.
+	 *
+	 * @param entry the registry entry
+	 * @param passed whether the predicate passed and the callback was called
+	 * @param nanos the time spent in the predicate and the callback
+	 */
+	public static void record(Object entry, boolean passed, long nanos)
+	{
+		stats.computeIfAbsent(entry, e -> new CallbackStats(owners.getOrDefault(e, e.toString()))).record(passed, nanos);
+	}
+
+	/**
+	 * Gets the statistics of the most expensive callbacks, by cumulative time.
+	 *
+	 * @param count the count
+	 * @return the list
+	 */
+	public static List<CallbackStats> top(int count)
+	{
+		List<CallbackStats> list = new ArrayList<>(stats.values());
+		list.sort(Comparator.comparingLong(CallbackStats::getNanos).reversed());
+		return list.subList(0, Math.min(count, list.size()));
+	}
+
+	private static void debug(String[] params)
+	{
+		String param = params.length > 2 ? params[2] : "";
+		switch (param)
+		{
+			case "on":
+				setEnabled(true);
+				MalisisCore.message("malisiscore.commands.callbacks.enabled");
+				return;
+			case "off":
+				setEnabled(false);
+				MalisisCore.message("malisiscore.commands.callbacks.disabled");
+				return;
+			case "reset":
+				reset();
+				MalisisCore.message("malisiscore.commands.callbacks.reset");
+				return;
+			default:
+		}
+
+		int count = DEFAULT_REPORT_SIZE;
+		if (!param.isEmpty())
+		{
+			try
+			{
+				count = Integer.parseInt(param);
+			}
+			catch (NumberFormatException e)
+			{
+				MalisisCore.message("malisiscore.commands.callbacks.usage");
+				return;
+			}
+		}
+
+		MalisisCore.message(enabled ? "malisiscore.commands.callbacks.header.enabled" : "malisiscore.commands.callbacks.header.disabled");
+		for (CallbackStats s : top(count))
+			MalisisCore.message("malisiscore.commands.callbacks.entry",
+					s.getOwner(),
+					s.getCalls(),
+					s.getTests(),
+					s.getNanos() / 1_000_000D,
+					s.getPercentile(0.99) / 1000D);
+	}
+
+	/**
+	 * Statistics for a registered callback.
+	 */
+	public static class CallbackStats
+	{
+		private final String owner;
+		private final LongAdder tests = new LongAdder();
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		/** Log-scale histogram of the durations, with {@link #SUB_BUCKETS} buckets per power of two. */
+		private final AtomicLongArray histogram = new AtomicLongArray(64 * SUB_BUCKETS);
+
+		private CallbackStats(String owner)
+		{
+			this.owner = owner;
+		}
+
+		private void record(boolean passed, long duration)
+		{
+			tests.increment();
+			if (passed)
+				calls.increment();
+			nanos.add(duration);
+			histogram.incrementAndGet(bucket(Math.max(duration, 1)));
+		}
+
+		public String getOwner()
+		{
+			return owner;
+		}
+
+		public long getTests()
+		{
+			return tests.sum();
+		}
+
+		public long getCalls()
+		{
+			return calls.sum();
+		}
+
+		public long getNanos()
+		{
+			return nanos.sum();
+		}
+
+		/**
+		 * Gets the approximate duration under which the specified fraction of the evaluations completed.
+		 *
+		 * @param percentile the percentile, between 0 and 1
+		 * @return the duration in nanoseconds
+		 */
+		public long getPercentile(double percentile)
+		{
+			long total = 0;
+			for (int i = 0; i < histogram.length(); i++)
+				total += histogram.get(i);
+
+			long target = (long) Math.ceil(total * percentile);
+			long count = 0;
+			for (int i = 0; i < histogram.length(); i++)
+			{
+				count += histogram.get(i);
+				if (count >= target && count > 0)
+					return upperBound(i);
+			}
+			return 0;
+		}
+
+		private static int bucket(long duration)
+		{
+			int log = 63 - Long.numberOfLeadingZeros(duration);
+			if (log < 2)
+				return (int) duration;
+			//two bits under the highest one give the sub bucket
+			return log * SUB_BUCKETS + (int) ((duration >> (log - 2)) & (SUB_BUCKETS - 1));
+		}
+
+		private static long upperBound(int bucket)
+		{
+			int log = bucket / SUB_BUCKETS;
+			if (log < 2)
+				return bucket;
+			return (1L << log) + ((long) (bucket % SUB_BUCKETS + 1) << (log - 2)) - 1;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%s : %d/%d passed, %.3f ms total, p99 %.1f us",
+					owner,
+					getCalls(),
+					getTests(),
+					getNanos() / 1_000_000D,
+					getPercentile(0.99) / 1000D);
+		}
+	}
+}
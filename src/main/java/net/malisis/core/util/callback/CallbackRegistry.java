@@ -52,6 +52,12 @@ public class CallbackRegistry<C extends ICallback<V>, P extends ICallbackPredica
 {
 	/** List of registered {@link ICallback}. */
 	protected List<Pair<C, CallbackOption<P>>> callbacks = Lists.newArrayList();
+	/**
+	 * Registered {@link ICallback ICallbacks} sorted by priority, replaced on each registration (copy-on-write) so they can be iterated
+	 * without allocation.
+	 */
+	@SuppressWarnings("unchecked")
+	protected volatile Pair<C, CallbackOption<P>>[] entries = new Pair[0];
 
 	protected BiFunction<CallbackResult<V>, CallbackResult<V>, CallbackResult<V>> reduce = this::doReduce;
 
@@ -73,15 +79,19 @@ public class CallbackRegistry<C extends ICallback<V>, P extends ICallbackPredica
 	 * @param callback the callback
 	 * @param option the option
 	 */
+	@SuppressWarnings("unchecked")
 	public void registerCallback(C callback, CallbackOption<P> option)
 	{
-		callbacks.add(Pair.of(callback, option));
+		Pair<C, CallbackOption<P>> entry = Pair.of(callback, option);
+		callbacks.add(entry);
+		CallbackProfiler.registered(this, entry);
 		callbacks = Ordering.natural()
 							.reverse()
 							.onResultOf(Priority::ordinal)
 							.onResultOf(CallbackOption<P>::getPriority)
 							.onResultOf(Pair<C, CallbackOption<P>>::getRight)
 							.sortedCopy(callbacks);
+		entries = callbacks.toArray(new Pair[callbacks.size()]);
 	}
 
 	/**
@@ -92,25 +102,32 @@ public class CallbackRegistry<C extends ICallback<V>, P extends ICallbackPredica
 	 */
 	public CallbackResult<V> processCallbacks(Object... params)
 	{
-		if (callbacks.size() == 0)
+		Pair<C, CallbackOption<P>>[] entries = this.entries;
+		if (entries.length == 0)
 			return CallbackResult.noResult();
 
+		boolean profile = CallbackProfiler.isEnabled();
 		CallbackResult<V> result = CallbackResult.noResult();
 		Priority lastPriority = Priority.HIGHEST;
-		for (Pair<C, CallbackOption<P>> pair : callbacks)
+		for (Pair<C, CallbackOption<P>> pair : entries)
 		{
 			if (result.isCancelled() && pair.getRight().getPriority() != lastPriority)
 				return result;
 
+			long start = profile ? System.nanoTime() : 0;
 			if (pair.getRight().apply(params))
 			{
 				CallbackResult<V> tmp = pair.getLeft().call(params);
+				if (profile)
+					CallbackProfiler.record(pair, true, System.nanoTime() - start);
 				result = reduce.apply(result, tmp);
 				if (result.isForcedCancelled())
 					return result;
 
 				lastPriority = pair.getRight().getPriority();
 			}
+			else if (profile)
+				CallbackProfiler.record(pair, false, System.nanoTime() - start);
 		}
 
 		return result;
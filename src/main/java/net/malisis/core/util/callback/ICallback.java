@@ -138,6 +138,8 @@ public interface ICallback<T>
 		@SuppressWarnings("unchecked")
 		private P predicate = (P) (ICallbackPredicate) (params) -> true;
 		private Priority priority;
+		private boolean deferred = false;
+		private boolean threadSafe = false;
 
 		private CallbackOption(P predicate, Priority priority)
 		{
@@ -155,6 +157,54 @@ public interface ICallback<T>
 			return priority;
 		}
 
+		/**
+		 * Gets the {@link ICallbackPredicate} held by this {@link ICallback.CallbackOption}.<br>
+		 * A {@code null} predicate means the {@link ICallback} should always be called.
+		 *
+		 * @return the predicate
+		 */
+		public P getPredicate()
+		{
+			return predicate;
+		}
+
+		/**
+		 * Checks whether the associated {@link ICallback} is deferred.<br>
+		 * Deferred callbacks are not processed when the event happens, but delivered in a batch later on, and their result is ignored.
+		 * Only registries that support it defer callbacks.
+		 *
+		 * @return true, if deferred
+		 */
+		public boolean isDeferred()
+		{
+			return deferred;
+		}
+
+		/**
+		 * Checks whether the associated deferred {@link ICallback} can be processed outside of the thread the event happened on.
+		 *
+		 * @return true, if thread safe
+		 */
+		public boolean isThreadSafe()
+		{
+			return threadSafe;
+		}
+
+		/**
+		 * Returns a copy of this {@link ICallback.CallbackOption} for a deferred {@link ICallback}.<br>
+		 * Only callbacks that never need to change the outcome of the event should be deferred.
+		 *
+		 * @param threadSafe whether the callback and its predicate can be processed on a worker thread
+		 * @return the callback option
+		 */
+		public CallbackOption<P> defer(boolean threadSafe)
+		{
+			CallbackOption<P> option = new CallbackOption<>(predicate, priority);
+			option.deferred = true;
+			option.threadSafe = threadSafe;
+			return option;
+		}
+
 		/**
 		 * Returns the result of the {@link ICallbackPredicate} held by this {@link ICallback.CallbackOption}.
 		 *
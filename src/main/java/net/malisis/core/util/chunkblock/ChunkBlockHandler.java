@@ -25,25 +25,26 @@
 package net.malisis.core.util.chunkblock;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.apache.commons.lang3.ArrayUtils;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
 
 import gnu.trove.procedure.TLongProcedure;
+import gnu.trove.set.TLongSet;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.block.IComponent;
 import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.registry.BlockFilter;
 import net.malisis.core.registry.MalisisRegistry;
-import net.malisis.core.util.MBlockPos;
+import net.malisis.core.util.BlockPosUtils;
 import net.malisis.core.util.MBlockState;
 import net.malisis.core.util.Utils;
-import net.malisis.core.util.WeakNested;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback.CallbackOption;
 import net.malisis.core.util.callback.ICallback.Priority;
@@ -55,7 +56,9 @@ import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.ChunkWatchEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 
 /**
@@ -70,51 +73,53 @@ public class ChunkBlockHandler
 {
 	private static ChunkBlockHandler instance = new ChunkBlockHandler();
 
-	private WeakNested.Set<Chunk, BlockPos> serverChunks = new WeakNested.Set<>(Sets::newHashSet);
-	private WeakNested.Set<Chunk, BlockPos> clientChunks = new WeakNested.Set<>(Sets::newHashSet);
-
-	//	private Map<Chunk, List<BlockPos>> serverChunks = new WeakHashMap<>();
-	//	private Map<Chunk, List<BlockPos>> clientChunks = new WeakHashMap<>();
+	private final Map<World, ChunkBlockStore> serverStores = new IdentityHashMap<>();
+	private final Map<World, ChunkBlockStore> clientStores = new IdentityHashMap<>();
 
 	public ChunkBlockHandler()
 	{
 		MinecraftForge.EVENT_BUS.register(this);
-		MalisisRegistry.onPreSetBlock(this::handleChunkBlock, CallbackOption.of(Priority.LOWEST));
+		MalisisRegistry.onPreSetBlock(this::handleChunkBlock, CallbackOption.of(Priority.LOWEST), BlockFilter.component(IChunkBlock.class));
 	}
 
-	public WeakNested.Set<Chunk, BlockPos> chunks(Chunk chunk)
+	/**
+	 * Gets the {@link ChunkBlockStore} for the {@link World}.
+	 *
+	 * @param world the world
+	 * @return the chunk block store
+	 */
+	public ChunkBlockStore store(World world)
 	{
-		return chunk.getWorld().isRemote ? clientChunks : serverChunks;
+		Map<World, ChunkBlockStore> stores = world.isRemote ? clientStores : serverStores;
+		return stores.computeIfAbsent(world, w -> new ChunkBlockStore());
 	}
 
 	/**
 	 * Gets all the coordinates stored in the chunk.<br>
-	 * If no coordinates are stored for the chunk, saves the newList for it.
+	 * Coordinates are packed with {@link BlockPos#toLong()}.
 	 *
 	 * @param chunk the chunk
 	 * @return the coords
 	 */
-	//	private Optional<List<BlockPos>> getCoords(Chunk chunk, List<BlockPos> newList)
-	//	{
-	//		Optional<List<BlockPos>> o = getCoords(chunk);
-	//		if (o.isPresent())
-	//			return o;
-	//
-	//		(chunk.getWorld().isRemote ? clientChunks : serverChunks).put(chunk, newList);
-	//		return Optional.of(newList);
-	//	}
+	public TLongSet chunks(Chunk chunk)
+	{
+		return store(chunk.getWorld()).get(chunk.x, chunk.z);
+	}
 
 	/**
-	 * Gets all the coordinates stored in the chunk.
+	 * Checks whether any of the {@link IChunkBlock} listening to the chunk has the component.
 	 *
-	 * @param chunk the chunk
-	 * @return the coords
+	 * @param world the world
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @param type the component type
+	 * @return true, if a listener has the component
 	 */
-	//	public Optional<List<BlockPos>> getCoords(Chunk chunk)
-	//	{
-	//		Map<Chunk, List<BlockPos>> chunks = chunk.getWorld().isRemote ? clientChunks : serverChunks;
-	//		return Optional.ofNullable(chunks.get(chunk));
-	//	}
+	public boolean hasComponent(World world, int chunkX, int chunkZ, Class<? extends IComponent> type)
+	{
+		ChunkBlockIndex index = store(world).getIndex(chunkX, chunkZ);
+		return index != null && index.hasComponent(world, type);
+	}
 
 	/**
 	 * Stores the coordinate in the chunk data if newState blocks has a {@link IChunkBlock} component.<br>
@@ -139,7 +144,7 @@ public class ChunkBlockHandler
 	}
 
 	/**
-	 * Adds a coordinate for the {@link Chunk Chunks} around {@link BlockPos}.
+	 * Adds a coordinate for the loaded {@link Chunk Chunks} around {@link BlockPos}.
 	 *
 	 * @param world the world
 	 * @param pos the pos
@@ -147,22 +152,20 @@ public class ChunkBlockHandler
 	 */
 	private void addCoord(World world, BlockPos pos, int size)
 	{
-		getAffectedChunks(world, pos.getX(), pos.getZ(), size).forEach(c -> addCoord(c, pos));
-	}
-
-	/**
-	 * Adds a coordinate for the specified {@link Chunk}.
-	 *
-	 * @param chunk the chunk
-	 * @param pos the pos
-	 */
-	private void addCoord(Chunk chunk, BlockPos pos)
-	{
-		chunks(chunk).add(chunk, pos);
+		ChunkBlockStore store = store(world);
+		long coord = pos.toLong();
+		for (int cx = (pos.getX() - size) >> 4; cx <= (pos.getX() + size) >> 4; cx++)
+		{
+			for (int cz = (pos.getZ() - size) >> 4; cz <= (pos.getZ() + size) >> 4; cz++)
+			{
+				if (isChunkLoaded(world, cx, cz))
+					store.add(cx, cz, coord, size);
+			}
+		}
 	}
 
 	/**
-	 * Removes a coordinate from the {@link Chunk}s around the {@link MBlockPos}.
+	 * Removes a coordinate from the {@link Chunk}s around the {@link BlockPos}.
 	 *
 	 * @param world the world
 	 * @param pos the pos
@@ -170,7 +173,13 @@ public class ChunkBlockHandler
 	 */
 	private void removeCoord(World world, BlockPos pos, int size)
 	{
-		getAffectedChunks(world, pos.getX(), pos.getZ(), size).forEach(c -> removeCoord(c, pos));
+		ChunkBlockStore store = store(world);
+		long coord = pos.toLong();
+		for (int cx = (pos.getX() - size) >> 4; cx <= (pos.getX() + size) >> 4; cx++)
+		{
+			for (int cz = (pos.getZ() - size) >> 4; cz <= (pos.getZ() + size) >> 4; cz++)
+				store.remove(cx, cz, coord);
+		}
 	}
 
 	/**
@@ -181,7 +190,20 @@ public class ChunkBlockHandler
 	 */
 	private void removeCoord(Chunk chunk, BlockPos pos)
 	{
-		chunks(chunk).remove(chunk, pos);
+		store(chunk.getWorld()).remove(chunk.x, chunk.z, pos.toLong());
+	}
+
+	/**
+	 * Checks whether the chunk is currently loaded.
+	 *
+	 * @param world the world
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @return true, if loaded
+	 */
+	private boolean isChunkLoaded(World world, int chunkX, int chunkZ)
+	{
+		return world.getChunkProvider() != null && world.getChunkProvider().getLoadedChunk(chunkX, chunkZ) != null;
 	}
 
 	//#end updateCoordinates
@@ -196,22 +218,93 @@ public class ChunkBlockHandler
 	@SubscribeEvent
 	public void onDataLoad(ChunkDataEvent.Load event)
 	{
-		if (event.getData().hasKey("chunkNotifier"))
-			chunks(event.getChunk()).addAll(event.getChunk(), readLongArray(event.getData()));
+		if (!event.getData().hasKey("chunkNotifier"))
+			return;
+
+		Chunk chunk = event.getChunk();
+		long[] coords = readLongArray(event.getData());
+		int[] ranges = event.getData().getIntArray("chunkNotifierRanges");
+		if (ranges.length != coords.length)
+			ranges = resolveRanges(chunk, coords);
+		store(chunk.getWorld()).addAll(chunk.x, chunk.z, coords, ranges);
+	}
+
+	/**
+	 * Resolves the ranges for coordinates saved without them.<br>
+	 * Only the coordinates inside the chunk itself can be resolved, the others are stored with {@link ChunkBlockIndex#UNKNOWN_RANGE}
+	 * until their block is set again.
+	 *
+	 * @param chunk the chunk
+	 * @param coords the coords
+	 * @return the ranges
+	 */
+	private int[] resolveRanges(Chunk chunk, long[] coords)
+	{
+		int[] ranges = new int[coords.length];
+		for (int i = 0; i < coords.length; i++)
+		{
+			int x = BlockPosUtils.getX(coords[i]);
+			int y = BlockPosUtils.getY(coords[i]);
+			int z = BlockPosUtils.getZ(coords[i]);
+			ranges[i] = ChunkBlockIndex.UNKNOWN_RANGE;
+			if (x >> 4 == chunk.x && z >> 4 == chunk.z)
+			{
+				IChunkBlock cb = IComponent.getComponent(IChunkBlock.class, chunk.getBlockState(x, y, z).getBlock());
+				if (cb != null)
+					ranges[i] = cb.blockRange();
+			}
+		}
+		return ranges;
 	}
 
 	/**
 	 * Called when a {@link Chunk} is saved on the server.<br>
-	 * Writes the coordinates to be saved in the Chunk's NBT.
+	 * Writes the coordinates to be saved in the Chunk's NBT.<br>
+	 * On the server, {@link ChunkEvent.Unload} is fired before the chunk is saved, so the coordinates are discarded here once the chunk
+	 * is not loaded anymore.
 	 *
 	 * @param event the event
 	 */
 	@SubscribeEvent
 	public void onDataSave(ChunkDataEvent.Save event)
 	{
-		Set<BlockPos> coords = chunks(event.getChunk()).get(event.getChunk());
-		if (!coords.isEmpty())
+		Chunk chunk = event.getChunk();
+		ChunkBlockStore store = store(chunk.getWorld());
+		ChunkBlockIndex index = store.getIndex(chunk.x, chunk.z);
+		if (index != null)
+		{
+			long[] coords = index.coords().toArray();
 			writeLongArray(event.getData(), coords);
+			event.getData().setIntArray("chunkNotifierRanges", getRanges(index, coords));
+		}
+
+		if (!chunk.isLoaded())
+			store.unload(chunk.x, chunk.z);
+	}
+
+	/**
+	 * Called when a {@link Chunk} is unloaded.<br>
+	 * Discards the coordinates stored on the client. The server ones are discarded when the chunk is saved.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		if (event.getWorld().isRemote)
+			store(event.getWorld()).unload(event.getChunk().x, event.getChunk().z);
+	}
+
+	/**
+	 * Called when a {@link World} is unloaded.<br>
+	 * Discards the {@link ChunkBlockStore} for that world.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		(event.getWorld().isRemote ? clientStores : serverStores).remove(event.getWorld());
 	}
 
 	/**
@@ -222,13 +315,13 @@ public class ChunkBlockHandler
 	 * @param compound the compound
 	 * @return the long[]
 	 */
-	private Set<BlockPos> readLongArray(NBTTagCompound compound)
+	private long[] readLongArray(NBTTagCompound compound)
 	{
-		ByteBuf bytes = Unpooled.copiedBuffer(compound.getByteArray("chunkNotifier"));
-		Set<BlockPos> set = Sets.newHashSet();
-		for (int i = 0; i < bytes.capacity() / 8; i++)
-			set.add(BlockPos.fromLong(bytes.readLong()));
-		return set;
+		ByteBuf bytes = Unpooled.wrappedBuffer(compound.getByteArray("chunkNotifier"));
+		long[] coords = new long[bytes.capacity() / 8];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = bytes.readLong();
+		return coords;
 	}
 
 	/**
@@ -237,15 +330,31 @@ public class ChunkBlockHandler
 	 *
 	 * @author Ivorius
 	 * @param compound the compound
-	 * @param longs the longs
+	 * @param coords the coords
 	 */
-	private void writeLongArray(NBTTagCompound compound, Set<BlockPos> set)
+	private void writeLongArray(NBTTagCompound compound, long[] coords)
 	{
-		ByteBuf bytes = Unpooled.buffer(set.size() * 8);
-		set.forEach(p -> bytes.writeLong(p.toLong()));
+		ByteBuf bytes = Unpooled.buffer(coords.length * 8);
+		for (long coord : coords)
+			bytes.writeLong(coord);
 		compound.setByteArray("chunkNotifier", bytes.array());
 	}
 
+	/**
+	 * Gets the ranges stored in the {@link ChunkBlockIndex} for the coordinates.
+	 *
+	 * @param index the index
+	 * @param coords the coords
+	 * @return the ranges
+	 */
+	private int[] getRanges(ChunkBlockIndex index, long[] coords)
+	{
+		int[] ranges = new int[coords.length];
+		for (int i = 0; i < coords.length; i++)
+			ranges[i] = index.getRange(coords[i]);
+		return ranges;
+	}
+
 	/**
 	 * Called when a client requests a {@link Chunk} from the server only.<br>
 	 * Sends the chunks coordinates to the client.
@@ -255,10 +364,12 @@ public class ChunkBlockHandler
 	@SubscribeEvent
 	public void onChunkWatched(ChunkWatchEvent.Watch event)
 	{
-		Chunk chunk = event.getPlayer().world.getChunkFromChunkCoords(event.getChunk().x, event.getChunk().z);
-		Set<BlockPos> coords = chunks(chunk).get(chunk);
-		if (!coords.isEmpty())
-			ChunkBlockMessage.sendCoords(chunk, coords, event.getPlayer());
+		ChunkBlockIndex index = store(event.getPlayer().world).getIndex(event.getChunk().x, event.getChunk().z);
+		if (index == null)
+			return;
+
+		long[] coords = index.coords().toArray();
+		ChunkBlockMessage.sendCoords(event.getChunk().x, event.getChunk().z, coords, getRanges(index, coords), event.getPlayer());
 	}
 
 	/**
@@ -268,11 +379,13 @@ public class ChunkBlockHandler
 	 * @param chunkX the chunk x
 	 * @param chunkZ the chunk z
 	 * @param coords the coords
+	 * @param ranges the ranges
 	 */
-	public void setCoords(int chunkX, int chunkZ, Set<BlockPos> coords)
+	public void setCoords(int chunkX, int chunkZ, long[] coords, int[] ranges)
 	{
-		Chunk chunk = Utils.getClientWorld().getChunkFromChunkCoords(chunkX, chunkZ);
-		chunks(chunk).addAll(chunk, coords);
+		World world = Utils.getClientWorld();
+		if (world != null && isChunkLoaded(world, chunkX, chunkZ))
+			store(world).addAll(chunkX, chunkZ, coords, ranges);
 	}
 
 	//#end Events
@@ -0,0 +1,361 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.procedure.TLongProcedure;
+import gnu.trove.set.TLongSet;
+import net.malisis.core.block.IComponent;
+import net.malisis.core.util.BlockPosUtils;
+import net.malisis.core.util.Point;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Spatial index of the {@link IChunkBlock} coordinates stored for a single {@link Chunk}.<br>
+ * Each coordinate is kept with its {@link IChunkBlock#blockRange()} and bucketed into every 16x16x16 section its influence box intersects,
+ * so that queries with an {@link AxisAlignedBB} or a ray segment only visit the listeners that can actually be concerned.
+ *
+ * @author Ordinastie
+ */
+public class ChunkBlockIndex
+{
+	/** Range used when the {@link IChunkBlock#blockRange()} of a coordinate is not known. The coordinate then matches every query. */
+	public static final int UNKNOWN_RANGE = -1;
+	/** Number of sections in a chunk. */
+	private static final int SECTIONS = 16;
+
+	/** Ranges by coordinate. */
+	private final TLongIntHashMap ranges = new TLongIntHashMap(8, 0.5F, 0, UNKNOWN_RANGE);
+	/** Live view of the coordinates. */
+	private final TLongSet coords = ranges.keySet();
+	/** Coordinates bucketed by section. */
+	private final Section[] sections = new Section[SECTIONS];
+	/** Cached results of {@link #hasComponent(World, Class)}, cleared whenever a coordinate is added or removed. */
+	private Map<Class<?>, Boolean> components;
+
+	/**
+	 * Gets all the coordinates stored in this {@link ChunkBlockIndex}.<br>
+	 * The returned set is a live view and should not be modified directly.
+	 *
+	 * @return the coords
+	 */
+	public TLongSet coords()
+	{
+		return coords;
+	}
+
+	/**
+	 * Gets the range stored for the coordinate.
+	 *
+	 * @param coord the coord
+	 * @return the range, or {@link #UNKNOWN_RANGE}
+	 */
+	public int getRange(long coord)
+	{
+		return ranges.get(coord);
+	}
+
+	/**
+	 * Checks whether this {@link ChunkBlockIndex} holds no coordinate.
+	 *
+	 * @return true, if empty
+	 */
+	public boolean isEmpty()
+	{
+		return ranges.isEmpty();
+	}
+
+	/**
+	 * Adds a coordinate with its range.<br>
+	 * If the coordinate was already stored with a different range, it is moved to the corresponding sections.
+	 *
+	 * @param coord the coord
+	 * @param range the range
+	 * @return true, if the coordinate was not already stored
+	 */
+	public boolean add(long coord, int range)
+	{
+		boolean contained = ranges.containsKey(coord);
+		if (contained)
+		{
+			int old = ranges.get(coord);
+			if (old == range)
+				return false;
+			removeFromSections(coord, old);
+		}
+
+		ranges.put(coord, range);
+		components = null;
+		int y = BlockPosUtils.getY(coord);
+		for (int s = minSection(y, range); s <= maxSection(y, range); s++)
+		{
+			if (sections[s] == null)
+				sections[s] = new Section();
+			sections[s].add(coord, range);
+		}
+		return !contained;
+	}
+
+	/**
+	 * Removes a coordinate.
+	 *
+	 * @param coord the coord
+	 * @return true, if the coordinate was stored
+	 */
+	public boolean remove(long coord)
+	{
+		if (!ranges.containsKey(coord))
+			return false;
+
+		removeFromSections(coord, ranges.remove(coord));
+		components = null;
+		return true;
+	}
+
+	/**
+	 * Checks whether any of the blocks stored in this {@link ChunkBlockIndex} has the component.<br>
+	 * Coordinates in unloaded chunks are considered to have it, and the result is then not cached.
+	 *
+	 * @param world the world
+	 * @param type the component type
+	 * @return true, if a block has the component
+	 */
+	public boolean hasComponent(World world, Class<? extends IComponent> type)
+	{
+		Boolean has = components != null ? components.get(type) : null;
+		if (has != null)
+			return has;
+
+		MutableBlockPos pos = new MutableBlockPos();
+		for (TLongIterator it = coords.iterator(); it.hasNext();)
+		{
+			long coord = it.next();
+			pos.setPos(BlockPosUtils.getX(coord), BlockPosUtils.getY(coord), BlockPosUtils.getZ(coord));
+			if (!world.isBlockLoaded(pos))
+				return true;
+			if (IComponent.getComponent(type, world.getBlockState(pos).getBlock()) != null)
+			{
+				has = true;
+				break;
+			}
+		}
+
+		if (components == null)
+			components = new IdentityHashMap<>();
+		components.put(type, has != null);
+		return has != null;
+	}
+
+	private void removeFromSections(long coord, int range)
+	{
+		int y = BlockPosUtils.getY(coord);
+		for (int s = minSection(y, range); s <= maxSection(y, range); s++)
+		{
+			if (sections[s] != null && sections[s].remove(coord) && sections[s].size == 0)
+				sections[s] = null;
+		}
+	}
+
+	/**
+	 * Calls the {@link TLongProcedure} for every coordinate whose influence box intersects the {@link AxisAlignedBB}.
+	 *
+	 * @param aabb the aabb
+	 * @param procedure the procedure
+	 * @return false if the procedure stopped the iteration
+	 */
+	public boolean forEach(AxisAlignedBB aabb, TLongProcedure procedure)
+	{
+		return forEach(aabb.minX, aabb.minY, aabb.minZ, aabb.maxX, aabb.maxY, aabb.maxZ, null, null, procedure);
+	}
+
+	/**
+	 * Calls the {@link TLongProcedure} for every coordinate whose influence box contains the {@link BlockPos}.
+	 *
+	 * @param pos the pos
+	 * @param procedure the procedure
+	 * @return false if the procedure stopped the iteration
+	 */
+	public boolean forEach(BlockPos pos, TLongProcedure procedure)
+	{
+		return forEach(pos.getX(), pos.getY(), pos.getZ(), pos.getX() + 1, pos.getY() + 1, pos.getZ() + 1, null, null, procedure);
+	}
+
+	/**
+	 * Calls the {@link TLongProcedure} for every coordinate whose influence box is crossed by the segment going from {@code src} to
+	 * {@code dest}.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param procedure the procedure
+	 * @return false if the procedure stopped the iteration
+	 */
+	public boolean forEach(Point src, Point dest, TLongProcedure procedure)
+	{
+		return forEach(	Math.min(src.x, dest.x),
+						Math.min(src.y, dest.y),
+						Math.min(src.z, dest.z),
+						Math.max(src.x, dest.x),
+						Math.max(src.y, dest.y),
+						Math.max(src.z, dest.z),
+						src,
+						dest,
+						procedure);
+	}
+
+	private boolean forEach(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, Point src, Point dest, TLongProcedure procedure)
+	{
+		int sMin = clamp((int) Math.floor(minY) >> 4);
+		int sMax = clamp((int) Math.floor(maxY) >> 4);
+		for (int s = sMin; s <= sMax; s++)
+		{
+			Section section = sections[s];
+			if (section == null)
+				continue;
+
+			for (int i = 0; i < section.size; i++)
+			{
+				long coord = section.coords[i];
+				int range = section.ranges[i];
+				//coordinates spanning multiple sections are only visited in the first queried one
+				if (Math.max(sMin, minSection(BlockPosUtils.getY(coord), range)) != s)
+					continue;
+				if (range != UNKNOWN_RANGE)
+				{
+					int x = BlockPosUtils.getX(coord);
+					int y = BlockPosUtils.getY(coord);
+					int z = BlockPosUtils.getZ(coord);
+					if (x - range >= maxX || x + range + 1 <= minX || y - range >= maxY || y + range + 1 <= minY || z - range >= maxZ
+							|| z + range + 1 <= minZ)
+						continue;
+					if (src != null && !intersectsSegment(x, y, z, range, src, dest))
+						continue;
+				}
+
+				if (!procedure.execute(coord))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the segment intersects the influence box of the coordinate (slab method).
+	 *
+	 * @param x the x
+	 * @param y the y
+	 * @param z the z
+	 * @param range the range
+	 * @param src the src
+	 * @param dest the dest
+	 * @return true, if successful
+	 */
+	private static boolean intersectsSegment(int x, int y, int z, int range, Point src, Point dest)
+	{
+		double tMin = 0, tMax = 1;
+		for (int axis = 0; axis < 3; axis++)
+		{
+			double o = axis == 0 ? src.x : axis == 1 ? src.y : src.z;
+			double d = (axis == 0 ? dest.x : axis == 1 ? dest.y : dest.z) - o;
+			int c = axis == 0 ? x : axis == 1 ? y : z;
+			double min = c - range;
+			double max = c + range + 1;
+			if (d == 0)
+			{
+				if (o < min || o > max)
+					return false;
+				continue;
+			}
+
+			double t1 = (min - o) / d;
+			double t2 = (max - o) / d;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+			if (tMin > tMax)
+				return false;
+		}
+		return true;
+	}
+
+	private static int minSection(int y, int range)
+	{
+		return range == UNKNOWN_RANGE ? 0 : clamp((y - range) >> 4);
+	}
+
+	private static int maxSection(int y, int range)
+	{
+		return range == UNKNOWN_RANGE ? SECTIONS - 1 : clamp((y + range) >> 4);
+	}
+
+	private static int clamp(int section)
+	{
+		return Math.max(0, Math.min(SECTIONS - 1, section));
+	}
+
+	/**
+	 * Compact unordered list of the coordinates and ranges for a section.
+	 */
+	private static class Section
+	{
+		private long[] coords = new long[4];
+		private int[] ranges = new int[4];
+		private int size = 0;
+
+		private void add(long coord, int range)
+		{
+			if (size == coords.length)
+			{
+				coords = Arrays.copyOf(coords, size * 2);
+				ranges = Arrays.copyOf(ranges, size * 2);
+			}
+			coords[size] = coord;
+			ranges[size] = range;
+			size++;
+		}
+
+		private boolean remove(long coord)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				if (coords[i] == coord)
+				{
+					size--;
+					coords[i] = coords[size];
+					ranges[i] = ranges[size];
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -24,17 +24,11 @@
 
 package net.malisis.core.util.chunkblock;
 
-import java.util.Set;
-
-import com.google.common.collect.Sets;
-
 import io.netty.buffer.ByteBuf;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.network.IMalisisMessageHandler;
 import net.malisis.core.registry.AutoLoad;
 import net.minecraft.entity.player.EntityPlayerMP;
-import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.relauncher.Side;
@@ -54,28 +48,30 @@ public class ChunkBlockMessage implements IMalisisMessageHandler<ChunkBlockMessa
 	@Override
 	public void process(Packet message, MessageContext ctx)
 	{
-		ChunkBlockHandler.get().setCoords(message.x, message.z, message.coords);
+		ChunkBlockHandler.get().setCoords(message.x, message.z, message.coords, message.ranges);
 	}
 
-	public static void sendCoords(Chunk chunk, Set<BlockPos> coords, EntityPlayerMP player)
+	public static void sendCoords(int chunkX, int chunkZ, long[] coords, int[] ranges, EntityPlayerMP player)
 	{
-		MalisisCore.network.sendTo(new Packet(chunk, coords), player);
+		MalisisCore.network.sendTo(new Packet(chunkX, chunkZ, coords, ranges), player);
 	}
 
 	public static class Packet implements IMessage
 	{
 		private int x;
 		private int z;
-		private Set<BlockPos> coords;
+		private long[] coords;
+		private int[] ranges;
 
 		public Packet()
 		{}
 
-		public Packet(Chunk chunk, Set<BlockPos> coords)
+		public Packet(int x, int z, long[] coords, int[] ranges)
 		{
-			this.x = chunk.x;
-			this.z = chunk.z;
+			this.x = x;
+			this.z = z;
 			this.coords = coords;
+			this.ranges = ranges;
 		}
 
 		@Override
@@ -83,10 +79,13 @@ public class ChunkBlockMessage implements IMalisisMessageHandler<ChunkBlockMessa
 		{
 			x = buf.readInt();
 			z = buf.readInt();
-			coords = Sets.newHashSet();
-			int count = buf.readInt();
-			for (int i = 0; i < count; i++)
-				coords.add(BlockPos.fromLong(buf.readLong()));
+			coords = new long[buf.readInt()];
+			ranges = new int[coords.length];
+			for (int i = 0; i < coords.length; i++)
+			{
+				coords[i] = buf.readLong();
+				ranges[i] = buf.readInt();
+			}
 		}
 
 		@Override
@@ -94,8 +93,12 @@ public class ChunkBlockMessage implements IMalisisMessageHandler<ChunkBlockMessa
 		{
 			buf.writeInt(x);
 			buf.writeInt(z);
-			buf.writeInt(coords.size());
-			coords.forEach(p -> buf.writeLong(p.toLong()));
+			buf.writeInt(coords.length);
+			for (int i = 0; i < coords.length; i++)
+			{
+				buf.writeLong(coords[i]);
+				buf.writeInt(ranges[i]);
+			}
 		}
 	}
 }
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkblock;
+
+import gnu.trove.TCollections;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * Stores the {@link IChunkBlock} coordinates for all the loaded chunks of a {@link World}.<br>
+ * Chunks are keyed by {@link ChunkPos#asLong(int, int)} and coordinates are stored as {@link BlockPos#toLong()} inside a
+ * {@link ChunkBlockIndex} for each chunk, so no {@code BlockPos} is kept in memory.<br>
+ * Entries are not weakly referenced : they are explicitly loaded and unloaded by the {@link ChunkBlockHandler} following the chunk events.
+ *
+ * @author Ordinastie
+ */
+public class ChunkBlockStore
+{
+	/** Shared empty set returned for chunks with no coordinates. */
+	private static final TLongSet EMPTY = TCollections.unmodifiableSet(new TLongHashSet(0));
+
+	/** Indexes by chunk. */
+	private final TLongObjectHashMap<ChunkBlockIndex> chunks = new TLongObjectHashMap<>();
+
+	/**
+	 * Gets the coordinates stored for the chunk.<br>
+	 * The returned set should not be modified directly.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @return the coordinates, or an empty set if none are stored
+	 */
+	public TLongSet get(int chunkX, int chunkZ)
+	{
+		ChunkBlockIndex index = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		return index != null ? index.coords() : EMPTY;
+	}
+
+	/**
+	 * Gets the {@link ChunkBlockIndex} for the chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @return the index, or null if no coordinates are stored
+	 */
+	public ChunkBlockIndex getIndex(int chunkX, int chunkZ)
+	{
+		return chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Adds a coordinate to the chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @param coord the coord
+	 * @param range the {@link IChunkBlock#blockRange()}
+	 * @return true, if the coordinate was not already stored
+	 */
+	public boolean add(int chunkX, int chunkZ, long coord, int range)
+	{
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkBlockIndex index = chunks.get(key);
+		if (index == null)
+		{
+			index = new ChunkBlockIndex();
+			chunks.put(key, index);
+		}
+		return index.add(coord, range);
+	}
+
+	/**
+	 * Adds all the coordinates to the chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @param coords the coords
+	 * @param ranges the ranges for each coordinate
+	 */
+	public void addAll(int chunkX, int chunkZ, long[] coords, int[] ranges)
+	{
+		for (int i = 0; i < coords.length; i++)
+			add(chunkX, chunkZ, coords[i], ranges[i]);
+	}
+
+	/**
+	 * Removes a coordinate from the chunk.<br>
+	 * The chunk entry is discarded once it's empty.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 * @param coord the coord
+	 * @return true, if the coordinate was stored
+	 */
+	public boolean remove(int chunkX, int chunkZ, long coord)
+	{
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkBlockIndex index = chunks.get(key);
+		if (index == null || !index.remove(coord))
+			return false;
+
+		if (index.isEmpty())
+			chunks.remove(key);
+		return true;
+	}
+
+	/**
+	 * Discards all the coordinates stored for the chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 */
+	public void unload(int chunkX, int chunkZ)
+	{
+		chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Checks whether no coordinates are stored in this {@link ChunkBlockStore}.
+	 *
+	 * @return true, if empty
+	 */
+	public boolean isEmpty()
+	{
+		return chunks.isEmpty();
+	}
+}
@@ -24,15 +24,26 @@
 
 package net.malisis.core.util.chunkblock;
 
-import java.util.Set;
+import java.util.ArrayDeque;
 
+import org.apache.commons.lang3.tuple.Pair;
+
+import gnu.trove.procedure.TLongProcedure;
+import gnu.trove.set.TLongSet;
+import net.malisis.core.util.BlockPosUtils;
+import net.malisis.core.util.Point;
+import net.malisis.core.util.callback.CallbackProfiler;
 import net.malisis.core.util.callback.CallbackRegistry;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
 import net.malisis.core.util.callback.ICallback.ICallbackPredicate;
+import net.malisis.core.util.callback.ICallback.Priority;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry.IChunkCallback;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry.IChunkCallbackPredicate;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.world.chunk.Chunk;
 
 /**
@@ -43,9 +54,11 @@ import net.minecraft.world.chunk.Chunk;
  */
 public class ChunkCallbackRegistry<C extends IChunkCallback<V>, P extends IChunkCallbackPredicate, V> extends CallbackRegistry<C, P, V>
 {
+	/** Reusable {@link ListenerProcedure ListenerProcedures}, per thread as callbacks may be processed recursively. */
+	private final ThreadLocal<ArrayDeque<ListenerProcedure>> procedures = ThreadLocal.withInitial(ArrayDeque::new);
 
 	/**
-	 * Processes the {@link IChunkCallback IChunkCallbacks} registered.
+	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for all the listeners stored in the {@link Chunk}.
 	 *
 	 * @param chunk the chunk
 	 * @param params the params
@@ -53,32 +66,211 @@ public class ChunkCallbackRegistry<C extends IChunkCallback<V>, P extends IChunk
 	 */
 	public CallbackResult<V> processCallbacks(Chunk chunk, Object... params)
 	{
-		//true = cancel => return
-		Set<BlockPos> coords = ChunkBlockHandler.get().chunks(chunk).get(chunk);
-		return processListeners(coords, chunk, params);
+		if (callbacks.size() == 0)
+			return CallbackResult.noResult();
+
+		TLongSet coords = ChunkBlockHandler.get().chunks(chunk);
+		if (coords.isEmpty())
+			return CallbackResult.noResult();
+
+		ListenerProcedure procedure = acquire(chunk, params);
+		try
+		{
+			coords.forEach(procedure);
+			return procedure.result;
+		}
+		finally
+		{
+			release(procedure);
+		}
+	}
+
+	/**
+	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for the listeners in the {@link Chunk} whose
+	 * {@link IChunkBlock#blockRange()} intersects the {@link AxisAlignedBB}.
+	 *
+	 * @param chunk the chunk
+	 * @param aabb the aabb
+	 * @param params the params
+	 * @return the callback result
+	 */
+	public CallbackResult<V> processCallbacksIntersecting(Chunk chunk, AxisAlignedBB aabb, Object... params)
+	{
+		ChunkBlockIndex index = getIndex(chunk);
+		if (index == null)
+			return CallbackResult.noResult();
+
+		ListenerProcedure procedure = acquire(chunk, params);
+		try
+		{
+			index.forEach(aabb, procedure);
+			return procedure.result;
+		}
+		finally
+		{
+			release(procedure);
+		}
+	}
+
+	/**
+	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for the listeners in the {@link Chunk} whose
+	 * {@link IChunkBlock#blockRange()} contains the {@link BlockPos}.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param params the params
+	 * @return the callback result
+	 */
+	public CallbackResult<V> processCallbacksAt(Chunk chunk, BlockPos pos, Object... params)
+	{
+		ChunkBlockIndex index = getIndex(chunk);
+		if (index == null)
+			return CallbackResult.noResult();
+
+		ListenerProcedure procedure = acquire(chunk, params);
+		try
+		{
+			index.forEach(pos, procedure);
+			return procedure.result;
+		}
+		finally
+		{
+			release(procedure);
+		}
+	}
+
+	/**
+	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for the listeners in the {@link Chunk} whose
+	 * {@link IChunkBlock#blockRange()} is crossed by the segment between {@code src} and {@code dest}.<br>
+	 * If {@code dest} is null, all the listeners are processed.
+	 *
+	 * @param chunk the chunk
+	 * @param src the src
+	 * @param dest the dest
+	 * @param params the params
+	 * @return the callback result
+	 */
+	public CallbackResult<V> processCallbacksAlong(Chunk chunk, Point src, Point dest, Object... params)
+	{
+		if (dest == null)
+			return processCallbacks(chunk, params);
+
+		ChunkBlockIndex index = getIndex(chunk);
+		if (index == null)
+			return CallbackResult.noResult();
+
+		ListenerProcedure procedure = acquire(chunk, params);
+		try
+		{
+			index.forEach(src, dest, procedure);
+			return procedure.result;
+		}
+		finally
+		{
+			release(procedure);
+		}
+	}
+
+	private ChunkBlockIndex getIndex(Chunk chunk)
+	{
+		if (callbacks.size() == 0)
+			return null;
+		return ChunkBlockHandler.get().store(chunk.getWorld()).getIndex(chunk.x, chunk.z);
+	}
+
+	private ListenerProcedure acquire(Chunk chunk, Object[] params)
+	{
+		ArrayDeque<ListenerProcedure> pool = procedures.get();
+		ListenerProcedure procedure = pool.isEmpty() ? new ListenerProcedure() : pool.pop();
+		procedure.set(chunk, params);
+		return procedure;
+	}
+
+	private void release(ListenerProcedure procedure)
+	{
+		procedure.clean();
+		procedures.get().push(procedure);
 	}
 
 	/**
-	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for the list of {@link BlockPos}.
+	 * Processes the {@link IChunkCallback IChunkCallbacks} registered for a single listener.<br>
+	 * The predicates are tested against the mutable {@code cursor}, and the {@link BlockPos} is only created if a {@code IChunkCallback}
+	 * needs to be called.
 	 *
-	 * @param list the list
 	 * @param chunk the chunk
+	 * @param cursor the cursor
 	 * @param params the params
 	 * @return the callback result
 	 */
-	private CallbackResult<V> processListeners(Set<BlockPos> list, Chunk chunk, Object... params)
+	private CallbackResult<V> processListener(Chunk chunk, MutableBlockPos cursor, Object[] params)
 	{
+		boolean profile = CallbackProfiler.isEnabled();
 		CallbackResult<V> result = CallbackResult.noResult();
-		for (BlockPos listener : list)
+		BlockPos listener = null;
+		Priority lastPriority = Priority.HIGHEST;
+		Pair<C, CallbackOption<P>>[] entries = this.entries;
+		for (int i = 0; i < entries.length; i++)
 		{
-			CallbackResult<V> tmp = super.processCallbacks(chunk, listener, params);
-			result = reduce.apply(result, tmp);
-			if (result.isForcedCancelled())
+			Pair<C, CallbackOption<P>> pair = entries[i];
+			CallbackOption<P> option = pair.getRight();
+			if (result.isCancelled() && option.getPriority() != lastPriority)
 				return result;
+
+			long start = profile ? System.nanoTime() : 0;
+			P predicate = option.getPredicate();
+			if (predicate == null || predicate.apply(chunk, cursor, params))
+			{
+				if (listener == null)
+					listener = cursor.toImmutable();
+				CallbackResult<V> tmp = pair.getLeft().call(chunk, listener, params);
+				if (profile)
+					CallbackProfiler.record(pair, true, System.nanoTime() - start);
+				result = reduce.apply(result, tmp);
+				if (result.isForcedCancelled())
+					return result;
+
+				lastPriority = option.getPriority();
+			}
+			else if (profile)
+				CallbackProfiler.record(pair, false, System.nanoTime() - start);
 		}
 		return result;
 	}
 
+	/**
+	 * {@link TLongProcedure} iterating the coordinates stored for a {@link Chunk}.
+	 */
+	private class ListenerProcedure implements TLongProcedure
+	{
+		private final MutableBlockPos cursor = new MutableBlockPos();
+		private Chunk chunk;
+		private Object[] params;
+		private CallbackResult<V> result;
+
+		private void set(Chunk chunk, Object[] params)
+		{
+			this.chunk = chunk;
+			this.params = params;
+			this.result = CallbackResult.noResult();
+		}
+
+		@Override
+		public boolean execute(long coord)
+		{
+			cursor.setPos(BlockPosUtils.getX(coord), BlockPosUtils.getY(coord), BlockPosUtils.getZ(coord));
+			result = reduce.apply(result, processListener(chunk, cursor, params));
+			//true = cancel => stop iterating
+			return !result.isForcedCancelled();
+		}
+
+		private void clean()
+		{
+			chunk = null;
+			params = null;
+			result = null;
+		}
+	}
+
 	/**
 	 * Specialized {@link ICallback} for {@link ChunkCallbackRegistry}.<br>
 	 * If the {@link CallbackResult#isForcedCancelled()} is {@code true}, the next listener positions won't be processed.
@@ -95,7 +287,8 @@ public class ChunkCallbackRegistry<C extends IChunkCallback<V>, P extends IChunk
 	}
 
 	/**
-	 * Specialized {@link IChunkCallbackPredicate} for {@link IChunkCallback}.
+	 * Specialized {@link IChunkCallbackPredicate} for {@link IChunkCallback}.<br>
+	 * The {@code listener} passed may be mutable and should not be kept.
 	 */
 	@FunctionalInterface
 	public interface IChunkCallbackPredicate extends ICallbackPredicate
@@ -24,7 +24,8 @@
 
 package net.malisis.core.util.chunkcollision;
 
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -32,6 +33,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import net.malisis.core.block.IComponent;
 import net.malisis.core.block.component.DirectionalComponent;
 import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.registry.BlockFilter;
+import net.malisis.core.registry.BulkEdit;
+import net.malisis.core.registry.MalisisRegistry;
 import net.malisis.core.util.AABBUtils;
 import net.malisis.core.util.BlockPosUtils;
 import net.malisis.core.util.ItemUtils;
@@ -39,6 +43,7 @@ import net.malisis.core.util.MBlockState;
 import net.malisis.core.util.Point;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.malisis.core.util.callback.ICallback.Priority;
 import net.malisis.core.util.chunkblock.ChunkBlockHandler;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry.IChunkCallback;
@@ -56,13 +61,16 @@ import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumHand;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.RayTraceResult.Type;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.GetCollisionBoxesEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 
 /**
@@ -77,15 +85,17 @@ public class ChunkCollision
 {
 	private static ChunkCollision instance = new ChunkCollision();
 
-	private ChunkCallbackRegistry<IChunkCallback<Void>, IChunkCallbackPredicate, Void> collisionRegistry = new ChunkCallbackRegistry<>();
 	private ChunkCallbackRegistry<IChunkCallback<RayTraceResult>, IChunkCallbackPredicate, RayTraceResult> rayTraceRegistry = new ChunkCallbackRegistry<>();
 	private ChunkCallbackRegistry<IChunkCallback<Boolean>, IChunkCallbackPredicate, Boolean> placeAtRegistry = new ChunkCallbackRegistry<>();
 
+	private final Map<World, CollisionGeometryCache> serverCaches = new IdentityHashMap<>();
+	private final Map<World, CollisionGeometryCache> clientCaches = new IdentityHashMap<>();
+
 	public ChunkCollision()
 	{
 		MinecraftForge.EVENT_BUS.register(this);
-		collisionRegistry.registerCallback(	this::collisionBoxesCallback,
-											CallbackOption.of((IChunkCallbackPredicate) this::isChunkCollidable));
+		MalisisRegistry.onPreSetBlock(this::invalidateGeometry, CallbackOption.of(), BlockFilter.CHUNK_BLOCKS);
+		MalisisRegistry.onPostSetBlock(this::invalidateGeometry, CallbackOption.of(Priority.HIGHEST), BlockFilter.CHUNK_BLOCKS);
 		rayTraceRegistry.registerCallback(this::rayTraceCallback, CallbackOption.of((IChunkCallbackPredicate) this::isChunkCollidable));
 		placeAtRegistry.registerCallback(this::placeAtCallback, CallbackOption.of((IChunkCallbackPredicate) this::isChunkCollidable));
 	}
@@ -96,6 +106,18 @@ public class ChunkCollision
 	}
 
 	//#region getCollisionBoundinBoxes
+	/**
+	 * Gets the {@link CollisionGeometryCache} for the {@link World}.
+	 *
+	 * @param world the world
+	 * @return the collision geometry cache
+	 */
+	public CollisionGeometryCache geometry(World world)
+	{
+		Map<World, CollisionGeometryCache> caches = world.isRemote ? clientCaches : serverCaches;
+		return caches.computeIfAbsent(world, CollisionGeometryCache::new);
+	}
+
 	/**
 	 * Gets the collision bounding boxes for the intersecting chunks.<br>
 	 * Called via ASM from {@link World#getCollisionBoxes(Entity, AxisAlignedBB)}
@@ -104,39 +126,54 @@ public class ChunkCollision
 	 */
 	@SubscribeEvent
 	public void onGetCollisionBoxes(GetCollisionBoxesEvent event)
-	//	public void getCollisionBoxes(World world, AxisAlignedBB mask, List<AxisAlignedBB> list, Entity entity)
 	{
 		//no mask, no need to check for collision
 		if (event.getAabb() == null)
 			return;
 
+		CollisionGeometryCache cache = geometry(event.getWorld());
 		for (Chunk chunk : ChunkBlockHandler.getAffectedChunks(event.getWorld(), event.getAabb()))
-			collisionRegistry.processCallbacks(chunk, event.getAabb(), event.getCollisionBoxesList());
+			cache.addCollisionBoxes(chunk, event.getAabb(), event.getCollisionBoxesList());
 	}
 
-	private CallbackResult<Void> collisionBoxesCallback(Chunk chunk, BlockPos listener, Object... params)
+	/**
+	 * Discards the cached collision boxes of the {@link IChunkCollidable} whose range contains the modified {@link BlockPos}.<br>
+	 * Called before and after the block is set, so both the removed and the placed {@code IChunkCollidable} are discarded.
+	 *
+	 * @param chunk the chunk
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 * @return the callback result
+	 */
+	private CallbackResult<Void> invalidateGeometry(Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
 	{
-		//make sure to get the state from world, because listener may not be inside the passed chunk
-		IBlockState state = chunk.getWorld().getBlockState(listener);
-		IChunkCollidable cc = IComponent.getComponent(IChunkCollidable.class, state.getBlock());
-		AxisAlignedBB mask = (AxisAlignedBB) params[0];
-		@SuppressWarnings("unchecked")
-		List<AxisAlignedBB> list = (List<AxisAlignedBB>) params[1];
-
-		AxisAlignedBB[] aabbs = cc.getCollisionBoundingBoxes(chunk.getWorld(), listener, state);
-		for (AxisAlignedBB aabb : aabbs)
-		{
-			if (aabb != null)
-			{
-				aabb = AABBUtils.offset(listener, aabb);
-				if (mask.intersects(aabb))
-					list.add(aabb);
-			}
-		}
-
+		geometry(chunk.getWorld()).invalidate(pos);
 		return CallbackResult.noResult();
 	}
 
+	/**
+	 * Discards the cached collision boxes for an unloaded {@link Chunk}.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		geometry(event.getWorld()).unload(event.getChunk().x, event.getChunk().z);
+	}
+
+	/**
+	 * Discards the {@link CollisionGeometryCache} for an unloaded {@link World}.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		(event.getWorld().isRemote ? clientCaches : serverCaches).remove(event.getWorld());
+	}
+
 	//#end getCollisionBoundinBoxes
 
 	//#region getRayTraceResult
@@ -154,9 +191,74 @@ public class ChunkCollision
 		return Pair.of(new Point(src), new Point(dest));
 	}
 
+	/**
+	 * Sets the ray trace infos, only if the ray crosses a chunk with {@link IChunkCollidable} listeners.<br>
+	 * Called from the {@link World#rayTraceBlocks(Vec3d, Vec3d, boolean, boolean, boolean)} mixin.
+	 *
+	 * @param world the world
+	 * @param src the src
+	 * @param dest the dest
+	 * @return the infos, or null if there is nothing to ray trace
+	 */
+	public Pair<Point, Point> setRayTraceInfos(World world, Vec3d src, Vec3d dest)
+	{
+		if (src == null || dest == null || !hasChunkCollidables(world, src.x, src.z, dest.x, dest.z))
+			return null;
+		return Pair.of(new Point(src), new Point(dest));
+	}
+
+	/**
+	 * Checks whether the segment crosses a chunk with {@link IChunkCollidable} listeners.<br>
+	 * Walks the chunks along the segment on the XZ plane, and returns as soon as one has a listener.
+	 *
+	 * @param world the world
+	 * @param srcX the src X
+	 * @param srcZ the src Z
+	 * @param destX the dest X
+	 * @param destZ the dest Z
+	 * @return true, if a crossed chunk has an {@link IChunkCollidable}
+	 */
+	public boolean hasChunkCollidables(World world, double srcX, double srcZ, double destX, double destZ)
+	{
+		ChunkBlockHandler handler = ChunkBlockHandler.get();
+		if (handler.store(world).isEmpty())
+			return false;
+
+		int chunkX = MathHelper.floor(srcX) >> 4;
+		int chunkZ = MathHelper.floor(srcZ) >> 4;
+		int steps = Math.abs((MathHelper.floor(destX) >> 4) - chunkX) + Math.abs((MathHelper.floor(destZ) >> 4) - chunkZ);
+		double dx = destX - srcX, dz = destZ - srcZ;
+		int stepX = dx < 0 ? -1 : 1;
+		int stepZ = dz < 0 ? -1 : 1;
+		double deltaX = Math.abs(16 / dx);
+		double deltaZ = Math.abs(16 / dz);
+		double maxX = dx == 0 ? Double.POSITIVE_INFINITY : (((chunkX + (dx > 0 ? 1 : 0)) << 4) - srcX) / dx;
+		double maxZ = dz == 0 ? Double.POSITIVE_INFINITY : (((chunkZ + (dz > 0 ? 1 : 0)) << 4) - srcZ) / dz;
+
+		for (int i = 0; i <= steps; i++)
+		{
+			if (handler.hasComponent(world, chunkX, chunkZ, IChunkCollidable.class))
+				return true;
+
+			if (maxX < maxZ)
+			{
+				chunkX += stepX;
+				maxX += deltaX;
+			}
+			else
+			{
+				chunkZ += stepZ;
+				maxZ += deltaZ;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Gets the ray trace result.<br>
-	 * Called via ASM from {@link World#rayTraceBlocks(Vec3d, Vec3d, boolean, boolean, boolean)} before each return.
+	 * Called via ASM from {@link World#rayTraceBlocks(Vec3d, Vec3d, boolean, boolean, boolean)} before each return.<br>
+	 * Callers are expected to have checked {@link #hasChunkCollidables(World, double, double, double, double)} already, as done by
+	 * {@link #setRayTraceInfos(World, Vec3d, Vec3d)}.
 	 *
 	 * @param world the world
 	 * @param result the mop
@@ -175,7 +277,7 @@ public class ChunkCollision
 	public RayTraceResult processCallbacks(Chunk chunk, Point src, Point dest)
 	{
 		rayTraceRegistry.reduce((c1, c2) -> CallbackResult.of(Raytrace.getClosestHit(Type.BLOCK, src, c1.getValue(), c2.getValue())));
-		return rayTraceRegistry.processCallbacks(chunk, src, dest).getValue();
+		return rayTraceRegistry.processCallbacksAlong(chunk, src, dest, src, dest).getValue();
 	}
 
 	private CallbackResult<RayTraceResult> rayTraceCallback(Chunk chunk, BlockPos listener, Object... params)
@@ -238,9 +340,10 @@ public class ChunkCollision
 			}
 		}
 
+		AxisAlignedBB bounds = AABBUtils.combine(aabbs);
 		for (Chunk chunk : ChunkBlockHandler.getAffectedChunks(world, aabbs))
 		{
-			CallbackResult<Boolean> result = placeAtRegistry.processCallbacks(chunk, (Object[]) aabbs);
+			CallbackResult<Boolean> result = placeAtRegistry.processCallbacksIntersecting(chunk, bounds, (Object[]) aabbs);
 			if (result.getValue() != null && !result.getValue())
 				return false;
 		}
@@ -266,15 +369,18 @@ public class ChunkCollision
 	public void replaceBlocks(World world, MBlockState state)
 	{
 		AxisAlignedBB[] aabbs = AABBUtils.getCollisionBoundingBoxes(world, state, true);
-		for (AxisAlignedBB aabb : aabbs)
+		try (BulkEdit edit = MalisisRegistry.bulkEdit(world))
 		{
-			if (aabb == null)
-				continue;
-
-			for (BlockPos pos : BlockPosUtils.getAllInBox(aabb))
+			for (AxisAlignedBB aabb : aabbs)
 			{
-				if (world.getBlockState(pos).getBlock().isReplaceable(world, pos))
-					world.setBlockToAir(pos);
+				if (aabb == null)
+					continue;
+
+				for (BlockPos pos : BlockPosUtils.getAllInBox(aabb))
+				{
+					if (world.getBlockState(pos).getBlock().isReplaceable(world, pos))
+						edit.setBlockToAir(pos);
+				}
 			}
 		}
 	}
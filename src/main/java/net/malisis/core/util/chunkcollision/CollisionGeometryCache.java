@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunkcollision;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.procedure.TLongProcedure;
+import net.malisis.core.block.IComponent;
+import net.malisis.core.util.AABBUtils;
+import net.malisis.core.util.BlockPosUtils;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
+import net.malisis.core.util.chunkblock.ChunkBlockIndex;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Caches the world space collision boxes of the {@link IChunkCollidable} blocks stored in each {@link Chunk} of a {@link World}.<br>
+ * Boxes are resolved lazily the first time a listener is queried, and discarded whenever a block inside the range of that listener is
+ * set, so collision queries only have to test intersections against the cached arrays.
+ *
+ * @author Ordinastie
+ */
+public class CollisionGeometryCache
+{
+	/** Cached value for listeners that are not {@link IChunkCollidable}. */
+	private static final AxisAlignedBB[] NONE = new AxisAlignedBB[0];
+
+	private final World world;
+	/** World space boxes by listener coordinate, for each chunk. */
+	private final TLongObjectHashMap<TLongObjectHashMap<AxisAlignedBB[]>> chunks = new TLongObjectHashMap<>();
+	/** Reusable {@link QueryProcedure QueryProcedures}, as queries can be nested when resolving boxes. */
+	private final ArrayDeque<QueryProcedure> procedures = new ArrayDeque<>();
+	private final InvalidateProcedure invalidateProcedure = new InvalidateProcedure();
+
+	public CollisionGeometryCache(World world)
+	{
+		this.world = world;
+	}
+
+	/**
+	 * Adds to the list the cached collision boxes of the {@link IChunkCollidable} stored in the {@link Chunk} that intersect the mask.
+	 *
+	 * @param chunk the chunk
+	 * @param mask the mask
+	 * @param list the list
+	 */
+	public void addCollisionBoxes(Chunk chunk, AxisAlignedBB mask, List<AxisAlignedBB> list)
+	{
+		ChunkBlockIndex index = ChunkBlockHandler.get().store(world).getIndex(chunk.x, chunk.z);
+		if (index == null)
+			return;
+
+		long key = ChunkPos.asLong(chunk.x, chunk.z);
+		TLongObjectHashMap<AxisAlignedBB[]> geometry = chunks.get(key);
+		if (geometry == null)
+		{
+			geometry = new TLongObjectHashMap<>();
+			chunks.put(key, geometry);
+		}
+
+		QueryProcedure procedure = procedures.isEmpty() ? new QueryProcedure() : procedures.pop();
+		try
+		{
+			procedure.set(geometry, mask, list);
+			index.forEach(mask, procedure);
+		}
+		finally
+		{
+			procedure.clean();
+			procedures.push(procedure);
+		}
+	}
+
+	/**
+	 * Discards the cached boxes of every listener whose range contains the {@link BlockPos}.
+	 *
+	 * @param pos the pos
+	 */
+	public void invalidate(BlockPos pos)
+	{
+		if (chunks.isEmpty())
+			return;
+
+		ChunkBlockIndex index = ChunkBlockHandler.get().store(world).getIndex(pos.getX() >> 4, pos.getZ() >> 4);
+		if (index == null)
+			return;
+
+		invalidateProcedure.index = index;
+		index.forEach(pos, invalidateProcedure);
+		invalidateProcedure.index = null;
+	}
+
+	/**
+	 * Discards the cached boxes for the chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 */
+	public void unload(int chunkX, int chunkZ)
+	{
+		chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Resolves the world space collision boxes for the listener.
+	 *
+	 * @param coord the coord
+	 * @return the boxes
+	 */
+	private AxisAlignedBB[] resolve(long coord)
+	{
+		BlockPos pos = BlockPos.fromLong(coord);
+		IBlockState state = world.getBlockState(pos);
+		IChunkCollidable cc = IComponent.getComponent(IChunkCollidable.class, state.getBlock());
+		if (cc == null)
+			return NONE;
+
+		AxisAlignedBB[] aabbs = cc.getCollisionBoundingBoxes(world, pos, state);
+		if (aabbs == null)
+			return NONE;
+
+		int count = 0;
+		for (AxisAlignedBB aabb : aabbs)
+			if (aabb != null)
+				count++;
+
+		AxisAlignedBB[] boxes = new AxisAlignedBB[count];
+		count = 0;
+		for (AxisAlignedBB aabb : aabbs)
+			if (aabb != null)
+				boxes[count++] = AABBUtils.offset(pos, aabb);
+		return boxes;
+	}
+
+	/**
+	 * {@link TLongProcedure} adding the cached boxes of each listener to the list.
+	 */
+	private class QueryProcedure implements TLongProcedure
+	{
+		private TLongObjectHashMap<AxisAlignedBB[]> geometry;
+		private AxisAlignedBB mask;
+		private List<AxisAlignedBB> list;
+
+		private void set(TLongObjectHashMap<AxisAlignedBB[]> geometry, AxisAlignedBB mask, List<AxisAlignedBB> list)
+		{
+			this.geometry = geometry;
+			this.mask = mask;
+			this.list = list;
+		}
+
+		@Override
+		public boolean execute(long coord)
+		{
+			AxisAlignedBB[] boxes = geometry.get(coord);
+			if (boxes == null)
+			{
+				boxes = resolve(coord);
+				geometry.put(coord, boxes);
+			}
+
+			for (AxisAlignedBB aabb : boxes)
+			{
+				if (mask.intersects(aabb))
+					list.add(aabb);
+			}
+			return true;
+		}
+
+		private void clean()
+		{
+			geometry = null;
+			mask = null;
+			list = null;
+		}
+	}
+
+	/**
+	 * {@link TLongProcedure} discarding the cached boxes of each listener in all the chunks within its range.
+	 */
+	private class InvalidateProcedure implements TLongProcedure
+	{
+		private ChunkBlockIndex index;
+
+		@Override
+		public boolean execute(long coord)
+		{
+			int range = index.getRange(coord);
+			if (range == ChunkBlockIndex.UNKNOWN_RANGE)
+			{
+				chunks.forEachValue(geometry -> {
+					geometry.remove(coord);
+					return true;
+				});
+				return true;
+			}
+
+			int x = BlockPosUtils.getX(coord);
+			int z = BlockPosUtils.getZ(coord);
+			for (int cx = (x - range) >> 4; cx <= (x + range) >> 4; cx++)
+			{
+				for (int cz = (z - range) >> 4; cz <= (z + range) >> 4; cz++)
+				{
+					TLongObjectHashMap<AxisAlignedBB[]> geometry = chunks.get(ChunkPos.asLong(cx, cz));
+					if (geometry != null)
+						geometry.remove(coord);
+				}
+			}
+			return true;
+		}
+	}
+}
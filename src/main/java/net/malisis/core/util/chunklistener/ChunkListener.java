@@ -24,22 +24,32 @@
 
 package net.malisis.core.util.chunklistener;
 
-import net.malisis.core.block.IComponent;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.registry.BlockFilter;
 import net.malisis.core.registry.MalisisRegistry;
 import net.malisis.core.registry.SetBlockCallbackRegistry;
 import net.malisis.core.util.callback.CallbackResult;
 import net.malisis.core.util.callback.ICallback;
 import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.malisis.core.util.callback.ICallback.Priority;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry.IChunkCallback;
 import net.malisis.core.util.chunkblock.ChunkCallbackRegistry.IChunkCallbackPredicate;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 
 /**
- * This {@link ChunkListener} class handles the {@link IBlockListener} components for blocks.
+ * This {@link ChunkListener} class handles the {@link IBlockListener} components for blocks.<br>
+ * The components of the listeners are resolved once and cached in a {@link ListenerCache} until the block at their position changes.
  *
  * @author Ordinastie
  */
@@ -50,14 +60,76 @@ public class ChunkListener
 	private static ChunkCallbackRegistry<IBlockListenerCallback, IBlockListenerPredicate, Void> preRegistry = new ChunkCallbackRegistry<>();
 	private static ChunkCallbackRegistry<IBlockListenerCallback, IBlockListenerPredicate, Void> postRegistry = new ChunkCallbackRegistry<>();
 
+	private final Map<World, ListenerCache> serverCaches = new IdentityHashMap<>();
+	private final Map<World, ListenerCache> clientCaches = new IdentityHashMap<>();
+
 	public ChunkListener()
 	{
-		MalisisRegistry.onPreSetBlock(preRegistry::processCallbacks, CallbackOption.of());
-		MalisisRegistry.onPostSetBlock(postRegistry::processCallbacks, CallbackOption.of());
+		MinecraftForge.EVENT_BUS.register(this);
+		MalisisRegistry.onPreSetBlock((chunk, pos, oldState, newState) -> preRegistry.processCallbacksAt(chunk, pos, pos, oldState, newState),
+				CallbackOption.of(),
+				BlockFilter.CHUNK_BLOCKS);
+		//discard the listener resolved for the modified position before post listeners are called
+		MalisisRegistry.onPostSetBlock(this::invalidateListener, CallbackOption.of(Priority.HIGHEST), BlockFilter.CHUNK_BLOCKS);
+		MalisisRegistry.onPostSetBlock((chunk, pos, oldState, newState) -> postRegistry.processCallbacksAt(chunk, pos, pos, oldState, newState),
+				CallbackOption.of(),
+				BlockFilter.CHUNK_BLOCKS);
 		preRegistry.registerCallback(this::callPreListener, CallbackOption.of(this::isValidPreListener));
 		postRegistry.registerCallback(this::callPostListener, CallbackOption.of(this::isValidPostListener));
 	}
 
+	/**
+	 * Gets the {@link ListenerCache} for the {@link World}.
+	 *
+	 * @param world the world
+	 * @return the listener cache
+	 */
+	private ListenerCache listeners(World world)
+	{
+		Map<World, ListenerCache> caches = world.isRemote ? clientCaches : serverCaches;
+		return caches.computeIfAbsent(world, ListenerCache::new);
+	}
+
+	private CallbackResult<Void> invalidateListener(Chunk chunk, BlockPos pos, IBlockState oldState, IBlockState newState)
+	{
+		listeners(chunk.getWorld()).invalidate(pos);
+		return CallbackResult.noResult();
+	}
+
+	/**
+	 * Discards the listeners resolved for a {@link Chunk} being loaded.<br>
+	 * On the client, chunk data received from the server replaces the blocks without going through {@link Chunk#setBlockState}.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkLoad(ChunkEvent.Load event)
+	{
+		listeners(event.getWorld()).unload(event.getChunk().x, event.getChunk().z);
+	}
+
+	/**
+	 * Discards the listeners resolved for an unloaded {@link Chunk}.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		listeners(event.getWorld()).unload(event.getChunk().x, event.getChunk().z);
+	}
+
+	/**
+	 * Discards the {@link ListenerCache} for an unloaded {@link World}.
+	 *
+	 * @param event the event
+	 */
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		(event.getWorld().isRemote ? clientCaches : serverCaches).remove(event.getWorld());
+	}
+
 	/**
 	 * Calls {@link IBlockListener.Pre#onBlockSet(net.minecraft.world.World, BlockPos, BlockPos, IBlockState, IBlockState)} for the listener
 	 * {@link BlockPos}.
@@ -71,8 +143,7 @@ public class ChunkListener
 	 */
 	public boolean callPreListener(Chunk chunk, BlockPos listener, BlockPos modified, IBlockState oldState, IBlockState newState)
 	{
-		IBlockListener.Pre bl = IComponent.getComponent(IBlockListener.Pre.class, chunk.getWorld().getBlockState(listener).getBlock());
-		return bl.onBlockSet(chunk.getWorld(), listener, modified, oldState, newState);
+		return listeners(chunk.getWorld()).get(listener).pre.onBlockSet(chunk.getWorld(), listener, modified, oldState, newState);
 	}
 
 	/**
@@ -89,11 +160,7 @@ public class ChunkListener
 	{
 		if (listener.equals(modified))
 			return false;
-		IBlockListener.Pre bl = IComponent.getComponent(IBlockListener.Pre.class, chunk.getWorld().getBlockState(listener).getBlock());
-		if (bl != null && bl.isInRange(listener, modified))
-			return true;
-
-		return false;
+		return listeners(chunk.getWorld()).get(listener).isInPreRange(listener, modified);
 	}
 
 	/**
@@ -108,8 +175,7 @@ public class ChunkListener
 	 */
 	public boolean callPostListener(Chunk chunk, BlockPos listener, BlockPos modified, IBlockState oldState, IBlockState newState)
 	{
-		IBlockListener.Post bl = IComponent.getComponent(IBlockListener.Post.class, chunk.getWorld().getBlockState(listener).getBlock());
-		bl.onBlockSet(chunk.getWorld(), listener, modified, oldState, newState);
+		listeners(chunk.getWorld()).get(listener).post.onBlockSet(chunk.getWorld(), listener, modified, oldState, newState);
 		return true;
 	}
 
@@ -127,11 +193,7 @@ public class ChunkListener
 	{
 		if (listener.equals(modified))
 			return false;
-		IBlockListener.Post bl = IComponent.getComponent(IBlockListener.Post.class, chunk.getWorld().getBlockState(listener).getBlock());
-		if (bl != null && bl.isInRange(listener, modified))
-			return true;
-
-		return false;
+		return listeners(chunk.getWorld()).get(listener).isInPostRange(listener, modified);
 	}
 
 	/**
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.chunklistener;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.malisis.core.block.IComponent;
+import net.malisis.core.util.chunkblock.IChunkBlock;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+ * Caches the {@link IBlockListener} components resolved for the listener coordinates of a {@link World}.<br>
+ * A coordinate is resolved the first time it is queried, and discarded when the block at that coordinate is set, so set-block dispatch
+ * only has to test the ranges.
+ *
+ * @author Ordinastie
+ */
+class ListenerCache
+{
+	private final World world;
+	/** Resolved listeners by coordinate, for each chunk. */
+	private final TLongObjectHashMap<TLongObjectHashMap<Resolved>> chunks = new TLongObjectHashMap<>();
+
+	ListenerCache(World world)
+	{
+		this.world = world;
+	}
+
+	/**
+	 * Gets the {@link Resolved} listener for the {@link BlockPos}, resolving it if necessary.
+	 *
+	 * @param pos the pos
+	 * @return the resolved listener
+	 */
+	Resolved get(BlockPos pos)
+	{
+		long chunkKey = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		TLongObjectHashMap<Resolved> listeners = chunks.get(chunkKey);
+		if (listeners == null)
+		{
+			listeners = new TLongObjectHashMap<>();
+			chunks.put(chunkKey, listeners);
+		}
+
+		long key = pos.toLong();
+		Resolved resolved = listeners.get(key);
+		if (resolved == null)
+		{
+			resolved = new Resolved(world.getBlockState(pos).getBlock());
+			listeners.put(key, resolved);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Discards the listener resolved for the {@link BlockPos}.
+	 *
+	 * @param pos the pos
+	 */
+	void invalidate(BlockPos pos)
+	{
+		TLongObjectHashMap<Resolved> listeners = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+		if (listeners != null)
+			listeners.remove(pos.toLong());
+	}
+
+	/**
+	 * Discards the listeners resolved for a chunk.
+	 *
+	 * @param chunkX the chunk X
+	 * @param chunkZ the chunk Z
+	 */
+	void unload(int chunkX, int chunkZ)
+	{
+		chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * {@link IBlockListener} components of the block at a listener coordinate, along with their ranges.
+	 */
+	static class Resolved
+	{
+		final IBlockListener.Pre pre;
+		final IBlockListener.Post post;
+		private final int preRange;
+		private final int postRange;
+
+		private Resolved(Block block)
+		{
+			pre = IComponent.getComponent(IBlockListener.Pre.class, block);
+			post = IComponent.getComponent(IBlockListener.Post.class, block);
+			preRange = pre != null ? pre.blockRange() : -1;
+			postRange = post != null ? post.blockRange() : -1;
+		}
+
+		/**
+		 * Checks if the {@code modified} {@link BlockPos} is in range of the {@link IBlockListener.Pre} at the {@code listener} position.
+		 *
+		 * @param listener the listener
+		 * @param modified the modified
+		 * @return true, if is in range
+		 */
+		boolean isInPreRange(BlockPos listener, BlockPos modified)
+		{
+			return pre != null && inBox(listener, modified, preRange) && pre.isInRange(listener, modified);
+		}
+
+		/**
+		 * Checks if the {@code modified} {@link BlockPos} is in range of the {@link IBlockListener.Post} at the {@code listener} position.
+		 *
+		 * @param listener the listener
+		 * @param modified the modified
+		 * @return true, if is in range
+		 */
+		boolean isInPostRange(BlockPos listener, BlockPos modified)
+		{
+			return post != null && inBox(listener, modified, postRange) && post.isInRange(listener, modified);
+		}
+
+		/**
+		 * Checks whether {@code to} is inside the box of {@link IChunkBlock#blockRange()} around {@code from}.
+		 */
+		private static boolean inBox(BlockPos from, BlockPos to, int range)
+		{
+			return Math.abs(to.getX() - from.getX()) <= range && Math.abs(to.getY() - from.getY()) <= range
+					&& Math.abs(to.getZ() - from.getZ()) <= range;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.clientnotif;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import io.netty.buffer.ByteBuf;
+import net.malisis.core.util.BlockPosUtils;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+
+/**
+ * Neighbor changes that happened in a chunk during the current tick.<br>
+ * Changes are deduplicated by (pos, neighborPos), keeping the last neighbor block.
+ *
+ * <p>
+ * Encoding for each change :
+ * <ul>
+ * <li>{@code short} chunk-relative position ({@code y << 8 | z << 4 | x})</li>
+ * <li>{@code byte} neighbor offset ({@code (dx + 1) * 9 + (dy + 1) * 3 + dz + 1}), or {@link #FAR_NEIGHBOR} followed by the
+ * {@code long} neighbor position</li>
+ * <li>{@code varint} neighbor block registry id</li>
+ * </ul>
+ *
+ * @author Ordinastie
+ */
+class ChunkNotifications
+{
+	static final int FAR_NEIGHBOR = 0xFF;
+
+	private final int chunkX;
+	private final int chunkZ;
+	/** Index of the change in the lists for a (pos, neighborPos) key. */
+	private final TLongIntHashMap index = new TLongIntHashMap(16, 0.5F, 0, -1);
+	private final TLongArrayList positions = new TLongArrayList();
+	private final TLongArrayList neighbors = new TLongArrayList();
+	private final TIntArrayList blocks = new TIntArrayList();
+
+	ChunkNotifications(int chunkX, int chunkZ)
+	{
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+	}
+
+	int chunkX()
+	{
+		return chunkX;
+	}
+
+	int chunkZ()
+	{
+		return chunkZ;
+	}
+
+	/**
+	 * Adds a change for the position, replacing the one already there for the same neighbor position.
+	 *
+	 * @param pos the pos
+	 * @param blockId the neighbor block id
+	 * @param neighborPos the neighbor pos
+	 */
+	void add(BlockPos pos, int blockId, BlockPos neighborPos)
+	{
+		int dx = neighborPos.getX() - pos.getX();
+		int dy = neighborPos.getY() - pos.getY();
+		int dz = neighborPos.getZ() - pos.getZ();
+		//key can only be built for offsets that fit in a short, farther neighbors are not deduplicated
+		boolean indexed = dx == (short) dx && dy == (short) dy && dz == (short) dz;
+		long key = (long) local(pos.getX(), pos.getY(), pos.getZ()) << 48 | (dx & 0xFFFFL) << 32 | (dy & 0xFFFFL) << 16 | dz & 0xFFFFL;
+		if (indexed)
+		{
+			int i = index.get(key);
+			if (i != -1)
+			{
+				blocks.set(i, blockId);
+				return;
+			}
+			index.put(key, positions.size());
+		}
+
+		positions.add(pos.toLong());
+		neighbors.add(neighborPos.toLong());
+		blocks.add(blockId);
+	}
+
+	/**
+	 * Writes the chunk coordinates and the changes into the {@link ByteBuf}.
+	 *
+	 * @param buf the buf
+	 */
+	void write(ByteBuf buf)
+	{
+		buf.writeInt(chunkX);
+		buf.writeInt(chunkZ);
+		ByteBufUtils.writeVarInt(buf, positions.size(), 5);
+		for (int i = 0; i < positions.size(); i++)
+		{
+			long pos = positions.get(i);
+			long neighborPos = neighbors.get(i);
+			int dx = BlockPosUtils.getX(neighborPos) - BlockPosUtils.getX(pos);
+			int dy = BlockPosUtils.getY(neighborPos) - BlockPosUtils.getY(pos);
+			int dz = BlockPosUtils.getZ(neighborPos) - BlockPosUtils.getZ(pos);
+
+			buf.writeShort(local(BlockPosUtils.getX(pos), BlockPosUtils.getY(pos), BlockPosUtils.getZ(pos)));
+			if (Math.abs(dx) <= 1 && Math.abs(dy) <= 1 && Math.abs(dz) <= 1)
+				buf.writeByte((dx + 1) * 9 + (dy + 1) * 3 + dz + 1);
+			else
+			{
+				buf.writeByte(FAR_NEIGHBOR);
+				buf.writeLong(neighborPos);
+			}
+			ByteBufUtils.writeVarInt(buf, blocks.get(i), 5);
+		}
+	}
+
+	private static int local(int x, int y, int z)
+	{
+		return (y & 0xFF) << 8 | (z & 15) << 4 | x & 15;
+	}
+}
@@ -25,20 +25,25 @@
 package net.malisis.core.util.clientnotif;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
-
-import org.apache.commons.lang3.tuple.Triple;
+import java.util.WeakHashMap;
 
 import com.google.common.collect.Sets;
 
+import gnu.trove.map.hash.TLongObjectHashMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.malisis.core.MalisisCore;
-import net.malisis.core.util.WeakNested;
+import net.malisis.core.util.EntityUtils;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.WorldServer;
 
 /**
  * @author Ordinastie
@@ -47,7 +52,8 @@ import net.minecraft.world.chunk.Chunk;
 public class ClientNotificationManager
 {
 	private static Set<Block> clientBlocks = Sets.newHashSet();
-	private static WeakNested.List<Chunk, Triple<BlockPos, Block, BlockPos>> updatedPos = new WeakNested.List<>(ArrayList::new);
+	/** Neighbor changes of the current tick, for each world and chunk. */
+	private static Map<World, TLongObjectHashMap<ChunkNotifications>> updatedPos = new WeakHashMap<>();
 
 	private static void registerBlockNotif(Block block)
 	{
@@ -85,20 +91,48 @@ public class ClientNotificationManager
 		if (world.isRemote) //should never be true
 			return;
 
+		if (world.isOutsideBuildHeight(pos))
+			return;
+
 		IBlockState state = world.getBlockState(pos);
 		if (!needsNotification(state.getBlock()))
 			return;
 
-		updatedPos.add(world.getChunkFromBlockCoords(pos), Triple.of(pos, neighborBlock, neighborPos));
-		//NeighborChangedMessage.send(world, pos, neighbor);
+		int chunkX = pos.getX() >> 4;
+		int chunkZ = pos.getZ() >> 4;
+		TLongObjectHashMap<ChunkNotifications> chunks = updatedPos.computeIfAbsent(world, w -> new TLongObjectHashMap<>());
+		ChunkNotifications notifications = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+		if (notifications == null)
+		{
+			notifications = new ChunkNotifications(chunkX, chunkZ);
+			chunks.put(ChunkPos.asLong(chunkX, chunkZ), notifications);
+		}
+		notifications.add(pos, Block.getIdFromBlock(neighborBlock), neighborPos);
 	}
 
+	/**
+	 * Sends the neighbor changes of the tick for the {@link World}.<br>
+	 * The changes of all the chunks watched by a player are combined in a single message.
+	 *
+	 * @param world the world
+	 */
 	public static void sendNeighborNotification(World world)
 	{
-		for (Chunk chunk : updatedPos.keys())
-			NeighborChangedMessage.send(chunk, updatedPos.get(chunk));
+		TLongObjectHashMap<ChunkNotifications> chunks = updatedPos.remove(world);
+		if (chunks == null)
+			return;
+
+		Map<EntityPlayerMP, ByteBuf> messages = new IdentityHashMap<>();
+		ByteBuf encoded = Unpooled.buffer();
+		chunks.forEachValue(notifications -> {
+			encoded.clear();
+			notifications.write(encoded);
+			for (EntityPlayerMP player : EntityUtils.getPlayersWatchingChunk((WorldServer) world, notifications.chunkX(), notifications.chunkZ()))
+				messages.computeIfAbsent(player, p -> Unpooled.buffer()).writeBytes(encoded, 0, encoded.writerIndex());
+			return true;
+		});
 
-		updatedPos.clear();
+		messages.forEach(NeighborChangedMessage::send);
 	}
 
 }
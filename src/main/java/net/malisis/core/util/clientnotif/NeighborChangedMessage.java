@@ -24,21 +24,16 @@
 
 package net.malisis.core.util.clientnotif;
 
-import java.util.List;
-
-import org.apache.commons.lang3.tuple.Triple;
-
-import com.google.common.collect.Lists;
-
 import io.netty.buffer.ByteBuf;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.network.IMalisisMessageHandler;
 import net.malisis.core.registry.AutoLoad;
 import net.malisis.core.util.clientnotif.NeighborChangedMessage.Packet;
 import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.relauncher.Side;
@@ -59,48 +54,58 @@ public class NeighborChangedMessage implements IMalisisMessageHandler<Packet, IM
 	public void process(Packet message, MessageContext ctx)
 	{
 		World world = IMalisisMessageHandler.getWorld(ctx);
-		for (Triple<BlockPos, Block, BlockPos> t : message.list)
-			world.getBlockState(t.getLeft()).neighborChanged(world, t.getLeft(), t.getMiddle(), t.getRight());
+		ByteBuf buf = message.data;
+		while (buf.isReadable())
+		{
+			int chunkX = buf.readInt();
+			int chunkZ = buf.readInt();
+			int count = ByteBufUtils.readVarInt(buf, 5);
+			for (int i = 0; i < count; i++)
+			{
+				int local = buf.readUnsignedShort();
+				BlockPos pos = new BlockPos(chunkX << 4 | local & 15, local >> 8, chunkZ << 4 | (local >> 4) & 15);
+				int offset = buf.readUnsignedByte();
+				BlockPos neighborPos = offset == ChunkNotifications.FAR_NEIGHBOR ? BlockPos.fromLong(buf.readLong())
+						: pos.add(offset / 9 - 1, offset / 3 % 3 - 1, offset % 3 - 1);
+				Block neighborBlock = Block.getBlockById(ByteBufUtils.readVarInt(buf, 5));
+				world.getBlockState(pos).neighborChanged(world, pos, neighborBlock, neighborPos);
+			}
+		}
 	}
 
-	public static void send(Chunk chunk, List<Triple<BlockPos, Block, BlockPos>> list)
+	/**
+	 * Sends the encoded neighbor changes to the player.
+	 *
+	 * @param player the player
+	 * @param data the data
+	 */
+	public static void send(EntityPlayerMP player, ByteBuf data)
 	{
-		Packet packet = new Packet(list);
-		MalisisCore.network.sendToPlayersWatchingChunk(packet, chunk);
+		MalisisCore.network.sendTo(new Packet(data), player);
 	}
 
 	public static class Packet implements IMessage
 	{
-		private List<Triple<BlockPos, Block, BlockPos>> list = Lists.newArrayList();
+		private ByteBuf data;
 
 		public Packet()
 		{}
 
-		public Packet(List<Triple<BlockPos, Block, BlockPos>> list)
+		public Packet(ByteBuf data)
 		{
-			this.list = list;
+			this.data = data;
 		}
 
 		@Override
 		public void fromBytes(ByteBuf buf)
 		{
-			int size = buf.readInt();
-			for (int i = 0; i < size; i++)
-				list.add(Triple.of(	BlockPos.fromLong(buf.readLong()),
-									Block.getBlockById(buf.readInt()),
-									BlockPos.fromLong(buf.readLong())));
+			data = buf.readBytes(buf.readableBytes());
 		}
 
 		@Override
 		public void toBytes(ByteBuf buf)
 		{
-			buf.writeInt(list.size());
-			for (Triple<BlockPos, Block, BlockPos> t : list)
-			{
-				buf.writeLong(t.getLeft().toLong());
-				buf.writeInt(Block.getIdFromBlock(t.getMiddle()));
-				buf.writeLong(t.getRight().toLong());
-			}
+			buf.writeBytes(data, data.readerIndex(), data.readableBytes());
 		}
 	}
 }
@@ -34,6 +34,8 @@ import net.malisis.core.MalisisCore;
 import net.malisis.core.block.IComponent;
 import net.malisis.core.block.component.DirectionalComponent;
 import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.registry.BulkEdit;
+import net.malisis.core.registry.MalisisRegistry;
 import net.malisis.core.util.BlockPosUtils;
 import net.malisis.core.util.EnumFacingUtils;
 import net.malisis.core.util.MBlockState;
@@ -59,11 +61,16 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 		BlockDataHandler.registerBlockData(ORIGIN_BLOCK_DATA, BlockPosUtils::fromBytes, BlockPosUtils::toBytes);
 	}
 
-	protected Map<BlockPos, MBlockState> states = new HashMap<>();
+	/** Members of this {@link MultiBlock}, relative to the origin. Modifying it discards the {@link #pattern}. */
+	protected Map<BlockPos, MBlockState> states = new StateMap();
+	/** Members precomputed for all the rotations, built lazily. */
+	private volatile MultiBlockPattern pattern;
 	protected BlockPos offset = BlockPos.ORIGIN;
 	protected PropertyDirection property = DirectionalComponent.HORIZONTAL;
 	private boolean bulkPlace;
 	private boolean bulkBreak;
+	/** Whether {@link #getWorldState(MBlockState, BlockPos, IBlockState)} is overridden and must be used for the world states. */
+	private final boolean customWorldState = overridesWorldState();
 
 	public void setOffset(BlockPos offset)
 	{
@@ -100,24 +107,47 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 		return bulkBreak;
 	}
 
+	/**
+	 * Gets the {@link MultiBlockPattern} for this {@link MultiBlock}, building it if the members changed.
+	 *
+	 * @return the pattern
+	 */
+	MultiBlockPattern pattern()
+	{
+		MultiBlockPattern pattern = this.pattern;
+		if (pattern == null)
+		{
+			pattern = new MultiBlockPattern(states.values());
+			this.pattern = pattern;
+		}
+		return pattern;
+	}
+
 	public boolean isFromMultiblock(World world, BlockPos pos)
 	{
 		BlockPos origin = getOrigin(world, pos);
 		if (origin == null)
 			return false;
 
-		for (MBlockState mstate : worldStates(world, origin))
+		if (customWorldState)
 		{
-			if (mstate.getPos().equals(pos))
-				return true;
+			for (MBlockState mstate : worldStates(world, origin))
+			{
+				if (mstate.getPos().equals(pos))
+					return true;
+			}
+			return false;
 		}
-		return false;
+
+		int rotation = getRotation(world.getBlockState(origin));
+		return pattern().indexOf(rotation, pos.getX() - origin.getX(), pos.getY() - origin.getY(), pos.getZ() - origin.getZ()) >= 0;
 	}
 
 	public MBlockState getState(BlockPos pos, IBlockState originState)
 	{
-		pos = BlockPosUtils.rotate(pos, 4 - getRotation(originState));
-		return states.get(pos);
+		MultiBlockPattern pattern = pattern();
+		int index = pattern.indexOf(getRotation(originState), pos.getX(), pos.getY(), pos.getZ());
+		return index >= 0 ? pattern.members[index] : null;
 	}
 
 	public boolean canPlaceBlockAt(World world, BlockPos origin, IBlockState originState, boolean placeOrigin)
@@ -133,12 +163,15 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 
 	public void placeBlocks(World world, BlockPos origin, IBlockState originState, boolean placeOrigin)
 	{
-		for (MBlockState mstate : worldStates(world, origin))
+		try (BulkEdit edit = MalisisRegistry.bulkEdit(world))
 		{
-			if (!mstate.getPos().equals(origin) || placeOrigin)
+			for (MBlockState mstate : worldStates(world, origin))
 			{
-				BlockDataHandler.setData(ORIGIN_BLOCK_DATA, world, mstate.getPos(), origin);
-				mstate.placeBlock(world, 2);
+				if (!mstate.getPos().equals(origin) || placeOrigin)
+				{
+					BlockDataHandler.setData(ORIGIN_BLOCK_DATA, world, mstate.getPos(), origin);
+					edit.setBlockState(mstate.getPos(), mstate.getBlockState());
+				}
 			}
 		}
 
@@ -153,11 +186,14 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 
 		IBlockState originState = world.getBlockState(origin);
 		BlockDataHandler.removeData(ORIGIN_BLOCK_DATA, world, origin);
-		for (MBlockState mstate : worldStates(origin, originState))
+		try (BulkEdit edit = MalisisRegistry.bulkEdit(world))
 		{
-			//remove data first so breaking this block doesn't re-trigger this loop
-			BlockDataHandler.removeData(ORIGIN_BLOCK_DATA, world, mstate.getPos());
-			mstate.breakBlock(world, 2);
+			for (MBlockState mstate : worldStates(origin, originState))
+			{
+				//remove data first so breaking this block doesn't re-trigger this loop
+				BlockDataHandler.removeData(ORIGIN_BLOCK_DATA, world, mstate.getPos());
+				edit.breakBlock(mstate.getPos());
+			}
 		}
 	}
 
@@ -174,20 +210,33 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 		return isComplete(world, pos, null);
 	}
 
+	/**
+	 * Checks whether the {@link MultiBlock} is complete at the position, with the block being changed to {@code newState}.
+	 *
+	 * @param world the world
+	 * @param pos the origin
+	 * @param newState the state being placed, or null
+	 * @return true, if complete
+	 */
 	public boolean isComplete(World world, BlockPos pos, MBlockState newState)
 	{
-		MultiBlockAccess mba = new MultiBlockAccess(this, world);
-		for (MBlockState mstate : this)
-		{
-			mstate = new MBlockState(mba, mstate.getPos())/*.rotate(rotation)*/.offset(pos);
-			boolean matches = mstate.matchesWorld(world);
-			if (!matches)
-				mstate.matchesWorld(world);
-			if (!matches && (newState == null || !mstate.equals(newState)))
-				return false;
-		}
+		MultiBlockSnapshot snapshot = snapshot(world, pos, 0);
+		if (newState != null)
+			snapshot.update(newState.getPos(), newState.getBlockState());
+		return snapshot.isComplete();
+	}
 
-		return true;
+	/**
+	 * Takes a {@link MultiBlockSnapshot} of the region covered by this {@link MultiBlock} at the origin, with the specified rotation.
+	 *
+	 * @param world the world
+	 * @param origin the origin
+	 * @param rotation the rotation
+	 * @return the snapshot
+	 */
+	public MultiBlockSnapshot snapshot(World world, BlockPos origin, int rotation)
+	{
+		return new MultiBlockSnapshot(this, world, origin, rotation);
 	}
 
 	@Override
@@ -208,16 +257,49 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 			@Override
 			public Iterator<MBlockState> iterator()
 			{
-				return Iterators.transform(MultiBlock.this.iterator(), mstate -> getWorldState(mstate, origin, originState));
+				if (customWorldState)
+					return Iterators.transform(MultiBlock.this.iterator(), mstate -> getWorldState(mstate, origin, originState));
+
+				//members are already rotated in the pattern
+				MBlockState[] rotated = pattern().rotated[getRotation(originState) & 3];
+				return Iterators.transform(Iterators.forArray(rotated), mstate -> mstate.offset(origin));
 			}
 		};
 	}
 
+	/**
+	 * Gets the member rotated and offset for the origin.<br>
+	 * {@link #worldStates(BlockPos, IBlockState)} uses the members prerotated in the {@link MultiBlockPattern} instead, unless this method
+	 * is overridden.
+	 *
+	 * @param mstate the mstate
+	 * @param origin the origin
+	 * @param originState the origin state
+	 * @return the world state
+	 */
 	public MBlockState getWorldState(MBlockState mstate, BlockPos origin, IBlockState originState)
 	{
 		return mstate.rotate(getRotation(originState)).offset(origin);
 	}
 
+	/**
+	 * Checks whether the class of this {@link MultiBlock} overrides {@link #getWorldState(MBlockState, BlockPos, IBlockState)}.
+	 *
+	 * @return true, if overridden
+	 */
+	private boolean overridesWorldState()
+	{
+		try
+		{
+			return getClass().getMethod("getWorldState", MBlockState.class, BlockPos.class, IBlockState.class)
+								.getDeclaringClass() != MultiBlock.class;
+		}
+		catch (NoSuchMethodException e)
+		{
+			return true;
+		}
+	}
+
 	protected abstract void buildStates();
 
 	public static BlockPos getOrigin(IBlockAccess world, BlockPos pos)
@@ -235,4 +317,40 @@ public abstract class MultiBlock implements Iterable<MBlockState>
 	{
 		return world != null && pos != null && pos.equals(getOrigin(world, pos));
 	}
+
+	/**
+	 * Map of the members, discarding the {@link MultiBlockPattern} when modified.
+	 */
+	private class StateMap extends HashMap<BlockPos, MBlockState>
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public MBlockState put(BlockPos key, MBlockState value)
+		{
+			pattern = null;
+			return super.put(key, value);
+		}
+
+		@Override
+		public void putAll(Map<? extends BlockPos, ? extends MBlockState> m)
+		{
+			pattern = null;
+			super.putAll(m);
+		}
+
+		@Override
+		public MBlockState remove(Object key)
+		{
+			pattern = null;
+			return super.remove(key);
+		}
+
+		@Override
+		public void clear()
+		{
+			pattern = null;
+			super.clear();
+		}
+	}
 }
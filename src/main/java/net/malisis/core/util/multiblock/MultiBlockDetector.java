@@ -0,0 +1,323 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.multiblock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.registry.BlockFilter;
+import net.malisis.core.registry.MalisisRegistry;
+import net.malisis.core.util.callback.CallbackResult;
+import net.malisis.core.util.callback.ICallback.CallbackOption;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Server only.<br>
+ * {@link MultiBlockDetector} detects when registered {@link MultiBlock MultiBlocks} are formed or broken in the world, and fires the
+ * corresponding {@link MultiBlockEvent MultiBlockEvents}.
+ *
+ * <p>
+ * Each registered {@code MultiBlock} gets a post set-block callback filtered on its member blocks, so a block change is only processed
+ * for the multiblocks that contain the old or new block. For the new block, the candidate origins are computed from the members of that
+ * block type, in all four rotations, and only those are checked. Formed multiblocks are tracked with a {@link MultiBlockSnapshot} that is
+ * revalidated for the changed block only.<br>
+ * Formed multiblocks are forgotten when one of their chunks unloads, and detected again on the next change of one of their members.
+ *
+ * @author Ordinastie
+ */
+@AutoLoad
+public class MultiBlockDetector
+{
+	private static MultiBlockDetector instance = new MultiBlockDetector();
+
+	private Map<MultiBlock, Candidates> multiBlocks = new IdentityHashMap<>();
+	private Map<World, Formations> formations = new WeakHashMap<>();
+
+	private MultiBlockDetector()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Registers a {@link MultiBlock} to be detected.<br>
+	 * The multiblock should be fully built, as the callback is filtered on its current member blocks.
+	 *
+	 * @param multiBlock the multi block
+	 */
+	public synchronized void register(MultiBlock multiBlock)
+	{
+		if (multiBlocks.containsKey(multiBlock))
+			return;
+
+		Candidates candidates = new Candidates(multiBlock.pattern());
+		multiBlocks.put(multiBlock, candidates);
+		MalisisRegistry.onPostSetBlock((chunk, pos, oldState, newState) -> onBlockChanged(multiBlock, chunk, pos, newState),
+				CallbackOption.of(),
+				BlockFilter.blocks(candidates.blocks()));
+	}
+
+	private Formations formations(World world)
+	{
+		return formations.computeIfAbsent(world, w -> new Formations());
+	}
+
+	private CallbackResult<Void> onBlockChanged(MultiBlock multiBlock, Chunk chunk, BlockPos pos, IBlockState newState)
+	{
+		World world = chunk.getWorld();
+		if (world.isRemote)
+			return CallbackResult.noResult();
+
+		Formations formations = formations(world);
+		formations.revalidate(multiBlock, pos, newState);
+
+		Candidates candidates = candidates(multiBlock);
+		int[] members = candidates.get(newState.getBlock());
+		for (int member : members)
+		{
+			int rotation = member >>> 24;
+			int index = member & 0xFFFFFF;
+			if (!candidates.pattern.matches(rotation, index, newState))
+				continue;
+
+			BlockPos offset = candidates.pattern.rotated[rotation][index].getPos();
+			BlockPos origin = pos.subtract(offset);
+			if (formations.isFormed(multiBlock, origin, rotation))
+				continue;
+
+			MultiBlockSnapshot snapshot = multiBlock.snapshot(world, origin, rotation);
+			if (snapshot.isComplete())
+			{
+				formations.add(snapshot);
+				new MultiBlockEvent.Formed(snapshot).post();
+			}
+		}
+		return CallbackResult.noResult();
+	}
+
+	private synchronized Candidates candidates(MultiBlock multiBlock)
+	{
+		Candidates candidates = multiBlocks.get(multiBlock);
+		//members changed since registration
+		if (candidates.pattern != multiBlock.pattern())
+		{
+			candidates = new Candidates(multiBlock.pattern());
+			multiBlocks.put(multiBlock, candidates);
+		}
+		return candidates;
+	}
+
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		Formations f = formations.get(event.getWorld());
+		if (f != null)
+			f.unload(event.getChunk().x, event.getChunk().z);
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		formations.remove(event.getWorld());
+	}
+
+	/**
+	 * Gets the {@link MultiBlockDetector} instance.
+	 *
+	 * @return the multi block detector
+	 */
+	public static MultiBlockDetector get()
+	{
+		return instance;
+	}
+
+	/**
+	 * Members of a {@link MultiBlockPattern} indexed by block, as {@code rotation << 24 | index}.
+	 */
+	private static class Candidates
+	{
+		private static final int[] NONE = new int[0];
+
+		private final MultiBlockPattern pattern;
+		private final Map<Block, int[]> members = new IdentityHashMap<>();
+
+		private Candidates(MultiBlockPattern pattern)
+		{
+			this.pattern = pattern;
+			Map<Block, TIntArrayList> lists = new IdentityHashMap<>();
+			for (int r = 0; r < 4; r++)
+				for (int i = 0; i < pattern.size(); i++)
+					lists.computeIfAbsent(pattern.blocks[r][i], b -> new TIntArrayList()).add(r << 24 | i);
+			lists.forEach((block, list) -> members.put(block, list.toArray()));
+		}
+
+		private Block[] blocks()
+		{
+			return members.keySet().toArray(new Block[0]);
+		}
+
+		private int[] get(Block block)
+		{
+			int[] list = members.get(block);
+			return list != null ? list : NONE;
+		}
+	}
+
+	/**
+	 * Formed {@link MultiBlock MultiBlocks} of a {@link World}.
+	 */
+	private static class Formations
+	{
+		/** Formed multiblocks by member position. */
+		private final TLongObjectHashMap<List<MultiBlockSnapshot>> byPos = new TLongObjectHashMap<>();
+		/** Member positions of each formed multiblock. */
+		private final Map<MultiBlockSnapshot, long[]> positions = new IdentityHashMap<>();
+		/** Formed multiblocks by multiblock and origin, one per rotation. */
+		private final Map<MultiBlock, TLongObjectHashMap<MultiBlockSnapshot[]>> byOrigin = new IdentityHashMap<>();
+
+		private boolean isFormed(MultiBlock multiBlock, BlockPos origin, int rotation)
+		{
+			TLongObjectHashMap<MultiBlockSnapshot[]> origins = byOrigin.get(multiBlock);
+			if (origins == null)
+				return false;
+			MultiBlockSnapshot[] snapshots = origins.get(origin.toLong());
+			return snapshots != null && snapshots[rotation & 3] != null;
+		}
+
+		private void add(MultiBlockSnapshot snapshot)
+		{
+			long[] pos = snapshot.positions();
+			positions.put(snapshot, pos);
+			for (long p : pos)
+			{
+				List<MultiBlockSnapshot> list = byPos.get(p);
+				if (list == null)
+				{
+					list = new ArrayList<>(1);
+					byPos.put(p, list);
+				}
+				list.add(snapshot);
+			}
+
+			TLongObjectHashMap<MultiBlockSnapshot[]> origins = byOrigin.computeIfAbsent(snapshot.getMultiBlock(), m -> new TLongObjectHashMap<>());
+			MultiBlockSnapshot[] snapshots = origins.get(snapshot.getOrigin().toLong());
+			if (snapshots == null)
+			{
+				snapshots = new MultiBlockSnapshot[4];
+				origins.put(snapshot.getOrigin().toLong(), snapshots);
+			}
+			snapshots[snapshot.getRotation()] = snapshot;
+		}
+
+		private void remove(MultiBlockSnapshot snapshot)
+		{
+			long[] pos = positions.remove(snapshot);
+			if (pos == null)
+				return;
+
+			for (long p : pos)
+			{
+				List<MultiBlockSnapshot> list = byPos.get(p);
+				if (list != null && list.remove(snapshot) && list.isEmpty())
+					byPos.remove(p);
+			}
+
+			TLongObjectHashMap<MultiBlockSnapshot[]> origins = byOrigin.get(snapshot.getMultiBlock());
+			MultiBlockSnapshot[] snapshots = origins.get(snapshot.getOrigin().toLong());
+			snapshots[snapshot.getRotation()] = null;
+			if (snapshots[0] == null && snapshots[1] == null && snapshots[2] == null && snapshots[3] == null)
+				origins.remove(snapshot.getOrigin().toLong());
+		}
+
+		/**
+		 * Revalidates the formed {@link MultiBlock MultiBlocks} that have a member at the position, and fires
+		 * {@link MultiBlockEvent.Broken} for those no longer complete.
+		 *
+		 * @param multiBlock the multi block
+		 * @param pos the pos
+		 * @param newState the new state
+		 */
+		private void revalidate(MultiBlock multiBlock, BlockPos pos, IBlockState newState)
+		{
+			List<MultiBlockSnapshot> list = byPos.get(pos.toLong());
+			if (list == null)
+				return;
+
+			for (MultiBlockSnapshot snapshot : new ArrayList<>(list))
+			{
+				if (snapshot.getMultiBlock() == multiBlock && !snapshot.update(pos, newState))
+				{
+					remove(snapshot);
+					new MultiBlockEvent.Broken(snapshot).post();
+				}
+			}
+		}
+
+		/**
+		 * Forgets the formed {@link MultiBlock MultiBlocks} with a member in the chunk.
+		 *
+		 * @param chunkX the chunk X
+		 * @param chunkZ the chunk Z
+		 */
+		private void unload(int chunkX, int chunkZ)
+		{
+			if (positions.isEmpty())
+				return;
+
+			Set<MultiBlockSnapshot> unloaded = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (Iterator<Entry<MultiBlockSnapshot, long[]>> it = positions.entrySet().iterator(); it.hasNext();)
+			{
+				Entry<MultiBlockSnapshot, long[]> entry = it.next();
+				for (long p : entry.getValue())
+				{
+					BlockPos pos = BlockPos.fromLong(p);
+					if (pos.getX() >> 4 == chunkX && pos.getZ() >> 4 == chunkZ)
+					{
+						unloaded.add(entry.getKey());
+						break;
+					}
+				}
+			}
+			unloaded.forEach(this::remove);
+		}
+	}
+}
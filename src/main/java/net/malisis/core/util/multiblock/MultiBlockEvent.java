@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.multiblock;
+
+import net.malisis.core.event.MCEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Events fired by the {@link MultiBlockDetector} when a registered {@link MultiBlock} is formed or broken in the world.
+ *
+ * @author Ordinastie
+ */
+public abstract class MultiBlockEvent extends MCEvent
+{
+	private final MultiBlockSnapshot snapshot;
+
+	public MultiBlockEvent(MultiBlockSnapshot snapshot)
+	{
+		this.snapshot = snapshot;
+	}
+
+	public MultiBlock getMultiBlock()
+	{
+		return snapshot.getMultiBlock();
+	}
+
+	public World getWorld()
+	{
+		return snapshot.getWorld();
+	}
+
+	public BlockPos getOrigin()
+	{
+		return snapshot.getOrigin();
+	}
+
+	public int getRotation()
+	{
+		return snapshot.getRotation();
+	}
+
+	/**
+	 * Fired when the last missing member of a {@link MultiBlock} is placed.
+	 */
+	public static class Formed extends MultiBlockEvent
+	{
+		public Formed(MultiBlockSnapshot snapshot)
+		{
+			super(snapshot);
+		}
+	}
+
+	/**
+	 * Fired when a member of a formed {@link MultiBlock} is changed.
+	 */
+	public static class Broken extends MultiBlockEvent
+	{
+		public Broken(MultiBlockSnapshot snapshot)
+		{
+			super(snapshot);
+		}
+	}
+}
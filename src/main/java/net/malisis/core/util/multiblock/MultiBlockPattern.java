@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.multiblock;
+
+import java.util.Collection;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+import net.malisis.core.util.MBlockState;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+
+/**
+ * Members of a {@link MultiBlock} precomputed for the four rotations.<br>
+ * For each rotation, the offsets of the members from the origin are indexed in a packed-long hash table, so that membership and state
+ * lookups don't rotate positions nor allocate.
+ *
+ * @author Ordinastie
+ */
+class MultiBlockPattern
+{
+	private static final int BITS = 21;
+	private static final long MASK = (1L << BITS) - 1;
+
+	/** Members, as registered in the {@link MultiBlock}. */
+	final MBlockState[] members;
+	/** Members rotated, for each rotation. */
+	final MBlockState[][] rotated;
+	/** Expected block of each member, for each rotation. */
+	final Block[][] blocks;
+	/** Expected metadata of each member, for each rotation. */
+	final int[][] metas;
+	/** Offset -> member index, for each rotation. */
+	private final TLongIntHashMap[] indexes = new TLongIntHashMap[4];
+
+	MultiBlockPattern(Collection<MBlockState> states)
+	{
+		members = states.toArray(new MBlockState[0]);
+		rotated = new MBlockState[4][members.length];
+		blocks = new Block[4][members.length];
+		metas = new int[4][members.length];
+		for (int r = 0; r < 4; r++)
+		{
+			indexes[r] = new TLongIntHashMap(members.length * 2, 0.5F, Long.MIN_VALUE, -1);
+			for (int i = 0; i < members.length; i++)
+			{
+				MBlockState mstate = members[i].rotate(r);
+				rotated[r][i] = mstate;
+				blocks[r][i] = mstate.getBlock();
+				metas[r][i] = mstate.getBlock().getMetaFromState(mstate.getBlockState());
+				indexes[r].put(pack(mstate.getPos().getX(), mstate.getPos().getY(), mstate.getPos().getZ()), i);
+			}
+		}
+	}
+
+	static long pack(int x, int y, int z)
+	{
+		return (x & MASK) << BITS * 2 | (y & MASK) << BITS | z & MASK;
+	}
+
+	/**
+	 * Gets the index of the member at the offset from the origin.
+	 *
+	 * @param rotation the rotation
+	 * @param x the x offset
+	 * @param y the y offset
+	 * @param z the z offset
+	 * @return the index, or -1 if there is no member at that offset
+	 */
+	int indexOf(int rotation, int x, int y, int z)
+	{
+		return indexes[rotation & 3].get(pack(x, y, z));
+	}
+
+	/**
+	 * Checks whether the {@link IBlockState} matches the member, by block and metadata.
+	 *
+	 * @param rotation the rotation
+	 * @param index the index
+	 * @param state the state
+	 * @return true, if it matches
+	 */
+	boolean matches(int rotation, int index, IBlockState state)
+	{
+		Block block = blocks[rotation & 3][index];
+		return state.getBlock() == block && block.getMetaFromState(state) == metas[rotation & 3][index];
+	}
+
+	int size()
+	{
+		return members.length;
+	}
+}
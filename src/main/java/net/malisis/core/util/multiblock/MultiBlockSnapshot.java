@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.multiblock;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Snapshot of the region covered by a {@link MultiBlock} at an origin, recording which members match the world.<br>
+ * The region is read once when the snapshot is taken, without loading chunks: members in unloaded chunks don't match. Afterwards, a
+ * block change only revalidates that block with {@link #update(BlockPos, IBlockState)}, so the owner of the snapshot is responsible for
+ * feeding it the changes in the region.
+ *
+ * @author Ordinastie
+ */
+public class MultiBlockSnapshot
+{
+	private final MultiBlock multiBlock;
+	private final MultiBlockPattern pattern;
+	private final World world;
+	private final BlockPos origin;
+	private final int rotation;
+	private final boolean[] matches;
+	private int mismatches;
+
+	MultiBlockSnapshot(MultiBlock multiBlock, World world, BlockPos origin, int rotation)
+	{
+		this.multiBlock = multiBlock;
+		this.pattern = multiBlock.pattern();
+		this.world = world;
+		this.origin = origin;
+		this.rotation = rotation & 3;
+		this.matches = new boolean[pattern.size()];
+
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		Chunk chunk = null;
+		int chunkX = 0, chunkZ = 0;
+		for (int i = 0; i < matches.length; i++)
+		{
+			BlockPos offset = pattern.rotated[this.rotation][i].getPos();
+			pos.setPos(origin.getX() + offset.getX(), origin.getY() + offset.getY(), origin.getZ() + offset.getZ());
+			//members are usually grouped in a few chunks
+			if (i == 0 || chunkX != pos.getX() >> 4 || chunkZ != pos.getZ() >> 4)
+			{
+				chunkX = pos.getX() >> 4;
+				chunkZ = pos.getZ() >> 4;
+				//never load chunks, this can be called from within Chunk.setBlockState
+				chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+			}
+			//members in unloaded chunks don't match
+			matches[i] = chunk != null && pattern.matches(this.rotation, i, chunk.getBlockState(pos));
+			if (!matches[i])
+				mismatches++;
+		}
+	}
+
+	public MultiBlock getMultiBlock()
+	{
+		return multiBlock;
+	}
+
+	public World getWorld()
+	{
+		return world;
+	}
+
+	public BlockPos getOrigin()
+	{
+		return origin;
+	}
+
+	public int getRotation()
+	{
+		return rotation;
+	}
+
+	/**
+	 * Checks whether all the members match the world.
+	 *
+	 * @return true, if complete
+	 */
+	public boolean isComplete()
+	{
+		return mismatches == 0;
+	}
+
+	/**
+	 * Checks whether the position is part of the region of this {@link MultiBlockSnapshot}.
+	 *
+	 * @param pos the pos
+	 * @return true, if it is a member
+	 */
+	public boolean contains(BlockPos pos)
+	{
+		return indexOf(pos) >= 0;
+	}
+
+	/**
+	 * Gets the world positions of the members, packed with {@link BlockPos#toLong()}.
+	 *
+	 * @return the positions
+	 */
+	long[] positions()
+	{
+		long[] positions = new long[matches.length];
+		for (int i = 0; i < positions.length; i++)
+		{
+			BlockPos offset = pattern.rotated[rotation][i].getPos();
+			positions[i] = new BlockPos(origin.getX() + offset.getX(), origin.getY() + offset.getY(), origin.getZ() + offset.getZ()).toLong();
+		}
+		return positions;
+	}
+
+	private int indexOf(BlockPos pos)
+	{
+		return pattern.indexOf(rotation, pos.getX() - origin.getX(), pos.getY() - origin.getY(), pos.getZ() - origin.getZ());
+	}
+
+	/**
+	 * Revalidates the member at the position against the new {@link IBlockState}.
+	 *
+	 * @param pos the pos
+	 * @param state the new state
+	 * @return true, if the multiblock is complete after the change
+	 */
+	public boolean update(BlockPos pos, IBlockState state)
+	{
+		int index = indexOf(pos);
+		if (index < 0)
+			return isComplete();
+
+		boolean match = pattern.matches(rotation, index, state);
+		if (match != matches[index])
+		{
+			matches[index] = match;
+			mismatches += match ? -1 : 1;
+		}
+		return isComplete();
+	}
+}
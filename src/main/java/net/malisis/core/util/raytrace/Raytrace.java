@@ -25,7 +25,10 @@
 package net.malisis.core.util.raytrace;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -37,6 +40,7 @@ import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
 
 /**
  * @author Ordinastie
@@ -184,6 +188,31 @@ public class Raytrace
 		return ret;
 	}
 
+	/**
+	 * Traces all the {@link Ray rays} in parallel, each from its origin to <code>origin + direction</code>.<br>
+	 * The block states of the crossed chunk sections are captured first in a read-only snapshot, so this must be called from the thread
+	 * owning the {@link World}. The rays are then traced on the common fork-join pool against the snapshot only.<br>
+	 * Blocks without {@link net.malisis.core.block.IBoundingBox IBoundingBox} are traced against their bounding box, and
+	 * <code>LOG_BLOCK_PASSED</code> is ignored.
+	 *
+	 * @param world the world
+	 * @param rays the rays
+	 * @param options the {@link RaytraceWorld.Options}
+	 * @return the results, in the order of <code>rays</code>
+	 */
+	public static List<RayTraceResult> traceAll(World world, Collection<Ray> rays, int options)
+	{
+		List<Ray> list = new ArrayList<>(rays);
+		if (list.isEmpty())
+			return new ArrayList<>();
+
+		RegionSnapshot snapshot = new RegionSnapshot(world, list);
+		int opts = options & ~RaytraceWorld.Options.LOG_BLOCK_PASSED;
+		RayTraceResult[] results = new RayTraceResult[list.size()];
+		IntStream.range(0, results.length).parallel().forEach(i -> results[i] = new RaytraceWorld(snapshot, list.get(i), opts).trace());
+		return Arrays.asList(results);
+	}
+
 	/**
 	 * Gets the closest {@link RayTraceResult} to the source.
 	 *
@@ -37,6 +37,7 @@ import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 
 /**
@@ -48,7 +49,7 @@ import net.minecraft.world.World;
 public class RaytraceBlock extends Raytrace
 {
 	/** World reference **/
-	private World world;
+	private IBlockAccess world;
 	/** Position of the block being ray traced **/
 	private BlockPos pos;
 	/** Block being ray traced. */
@@ -62,11 +63,24 @@ public class RaytraceBlock extends Raytrace
 	 * @param pos the pos
 	 */
 	public RaytraceBlock(World world, Ray ray, BlockPos pos)
+	{
+		this(world, ray, pos, world.getBlockState(pos));
+	}
+
+	/**
+	 * Sets the parameters for this {@link RaytraceBlock}, with the {@link IBlockState} already known.
+	 *
+	 * @param world the world
+	 * @param ray the ray
+	 * @param pos the pos
+	 * @param state the state
+	 */
+	RaytraceBlock(IBlockAccess world, Ray ray, BlockPos pos, IBlockState state)
 	{
 		super(ray);
 		this.world = world;
 		this.pos = pos;
-		this.state = world.getBlockState(pos);
+		this.state = state;
 	}
 
 	/**
@@ -96,6 +110,21 @@ public class RaytraceBlock extends Raytrace
 		this.dest = dest;
 	}
 
+	/**
+	 * Sets the parameters for this {@link RaytraceBlock}, with the {@link IBlockState} already known.
+	 *
+	 * @param world the world
+	 * @param src the src
+	 * @param dest the dest
+	 * @param pos the pos
+	 * @param state the state
+	 */
+	RaytraceBlock(IBlockAccess world, Point src, Point dest, BlockPos pos, IBlockState state)
+	{
+		this(world, new Ray(src, new Vector(src, dest)), pos, state);
+		this.dest = dest;
+	}
+
 	/**
 	 * Sets the parameters for this {@link RaytraceBlock}.
 	 *
@@ -118,11 +147,13 @@ public class RaytraceBlock extends Raytrace
 	 */
 	public RayTraceResult trace()
 	{
-		if (!(state.getBlock() instanceof IBoundingBox))
-			return state.collisionRayTrace(world, pos, ray.origin.toVec3d(), dest.toVec3d());
-
-		IBoundingBox block = (IBoundingBox) state.getBlock();
-		AxisAlignedBB[] aabbs = block.getRayTraceBoundingBox(world, pos, world.getBlockState(pos));
+		AxisAlignedBB[] aabbs;
+		if (state.getBlock() instanceof IBoundingBox)
+			aabbs = ((IBoundingBox) state.getBlock()).getRayTraceBoundingBox(world, pos, state);
+		else if (world instanceof World)
+			return state.collisionRayTrace((World) world, pos, ray.origin.toVec3d(), dest.toVec3d());
+		else //no World to call collisionRayTrace with, so trace the bounding box instead
+			aabbs = new AxisAlignedBB[] { state.getBoundingBox(world, pos) };
 		Pair<EnumFacing, Point> closest = super.trace(AABBUtils.offset(pos, aabbs));
 		if (closest == null)
 			return null;
@@ -24,6 +24,7 @@
 
 package net.malisis.core.util.raytrace;
 
+import java.util.Collection;
 import java.util.HashMap;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -35,9 +36,16 @@ import net.malisis.core.util.Vector;
 import net.malisis.core.util.chunkcollision.ChunkCollision;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.RayTraceResult.Type;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 /**
  * RayTrace class that offers more control to handle raytracing.
@@ -51,12 +59,20 @@ public class RaytraceWorld extends Raytrace
 	private static final int MAX_BLOCKS = 200;
 	/** World object (needed for ray tracing inside each block). */
 	private World world;
-	/** Vector describing the direction of steps to take when reaching limits of a block. */
-	private Vector step;
 	/** The block coordinates of the source. */
 	private BlockPos blockSrc;
 	/** The block coordinates of the destination. */
 	private BlockPos blockDest;
+	/** Position of the block currently traced. */
+	private MutableBlockPos cursor = new MutableBlockPos();
+	/** Last {@link Chunk} read. */
+	private Chunk chunk;
+	/** Index of the last section read in {@link #chunk}. */
+	private int sectionY = -1;
+	/** Last section read. */
+	private ExtendedBlockStorage section;
+	/** Snapshot to read the blocks from instead of the world. Only set for {@link Raytrace#traceAll(World, Collection, int)}. */
+	private RegionSnapshot snapshot;
 
 	/** List of blocks passed by the ray trace. Only set if options <code>LOG_BLOCK_PASSED</code> is set */
 	public HashMap<BlockPos, RayTraceResult> blockPassed;
@@ -77,16 +93,6 @@ public class RaytraceWorld extends Raytrace
 
 		blockSrc = new BlockPos(src.toVec3d());
 
-		int stepX = 1, stepY = 1, stepZ = 1;
-		if (ray.direction.x < 0)
-			stepX = -1;
-		if (ray.direction.y < 0)
-			stepY = -1;
-		if (ray.direction.z < 0)
-			stepZ = -1;
-
-		step = new Vector(stepX, stepY, stepZ);
-
 		if (hasOption(Options.LOG_BLOCK_PASSED))
 			blockPassed = new HashMap<>();
 	}
@@ -151,6 +157,20 @@ public class RaytraceWorld extends Raytrace
 		blockDest = new BlockPos(dest.toVec3d());
 	}
 
+	/**
+	 * Instantiates a new {@link RaytraceWorld} reading from a {@link RegionSnapshot}.<br>
+	 * The ray goes from its origin to <code>origin + direction</code>.
+	 *
+	 * @param snapshot the snapshot
+	 * @param ray the ray
+	 * @param options the options
+	 */
+	RaytraceWorld(RegionSnapshot snapshot, Ray ray, int options)
+	{
+		this(snapshot.getWorld(), ray.origin, ray.getPointAt(1), options);
+		this.snapshot = snapshot;
+	}
+
 	/**
 	 * Sets the length of this {@link RaytraceWorld}.
 	 *
@@ -175,71 +195,151 @@ public class RaytraceWorld extends Raytrace
 	}
 
 	/**
-	 * Does the raytracing.
+	 * Does the raytracing.<br>
+	 * Walks the blocks along the ray with a reusable cursor, stepping on the axis with the closest block boundary. The tracing stops at
+	 * the first hit unless <code>PASS_THROUGH</code> or <code>LOG_BLOCK_PASSED</code> is set.
 	 *
 	 * @return {@link RayTraceResult} with <code>typeOfHit</code> <b>BLOCK</b> if a ray hits a block in the way, or <b>MISS</b> if it
 	 *         reaches <code>dest</code> without any hit
 	 */
 	public RayTraceResult trace()
 	{
-		RayTraceResult mop = null, firstHit = null;
-		double tX, tY, tZ, min;
+		RayTraceResult result = null, firstHit = null;
+		boolean ignoreFirst = hasOption(Options.IGNORE_FIRST_BLOCK);
+		boolean passThrough = hasOption(Options.PASS_THROUGH) || hasOption(Options.LOG_BLOCK_PASSED);
 		int count = 0;
 		boolean ret = false;
 
+		double dx = ray.direction.x, dy = ray.direction.y, dz = ray.direction.z;
 		int currentX = blockSrc.getX();
 		int currentY = blockSrc.getY();
 		int currentZ = blockSrc.getZ();
+		int stepX = dx < 0 ? -1 : 1;
+		int stepY = dy < 0 ? -1 : 1;
+		int stepZ = dz < 0 ? -1 : 1;
+		//distance along the ray to cross a whole block on each axis
+		double deltaX = Math.abs(1 / dx);
+		double deltaY = Math.abs(1 / dy);
+		double deltaZ = Math.abs(1 / dz);
+		//distance along the ray to the next block boundary on each axis
+		double maxX = dx == 0 ? Double.POSITIVE_INFINITY : (currentX + (dx > 0 ? 1 : 0) - src.x) / dx;
+		double maxY = dy == 0 ? Double.POSITIVE_INFINITY : (currentY + (dy > 0 ? 1 : 0) - src.y) / dy;
+		double maxZ = dz == 0 ? Double.POSITIVE_INFINITY : (currentZ + (dz > 0 ? 1 : 0) - src.z) / dz;
+		double end = distanceTo(dest);
 
 		while (!ret && count++ <= MAX_BLOCKS)
 		{
-			tX = ray.intersectX(currentX + (ray.direction.x > 0 ? 1 : 0));
-			tY = ray.intersectY(currentY + (ray.direction.y > 0 ? 1 : 0));
-			tZ = ray.intersectZ(currentZ + (ray.direction.z > 0 ? 1 : 0));
-
-			min = getMin(tX, tY, tZ);
+			double min = Math.min(maxX, Math.min(maxY, maxZ));
 
+			cursor.setPos(currentX, currentY, currentZ);
 			// do not trace first block
-			if (count != 1 || !hasOption(Options.IGNORE_FIRST_BLOCK))
-				mop = rayTraceBlock(new BlockPos(currentX, currentY, currentZ), ray.getPointAt(min));
+			if (count != 1 || !ignoreFirst)
+				result = rayTraceBlock(cursor, getBlockState(currentX, currentY, currentZ), Double.isInfinite(min) ? end : min);
 			if (firstHit == null)
-				firstHit = mop;
-			if (hasOption(Options.LOG_BLOCK_PASSED))
-				blockPassed.put(new BlockPos(currentX, currentY, currentZ), mop);
+				firstHit = result;
+			if (blockPassed != null)
+				blockPassed.put(cursor.toImmutable(), result);
 
-			if (dest != null && currentX == blockDest.getX() && currentY == blockDest.getY() && currentZ == blockDest.getZ())
+			if (firstHit != null && !passThrough)
+				ret = true;
+			if (dest != null && (min >= end || currentX == blockDest.getX() && currentY == blockDest.getY() && currentZ == blockDest.getZ()))
+				ret = true;
+			//nothing left to hit outside the world height
+			if (Double.isInfinite(min) || (currentY < 0 && dy <= 0) || (currentY >= 256 && dy >= 0))
 				ret = true;
 
 			if (!ret)
 			{
-				if (min == tX)
-					currentX += step.x;
-				if (min == tY)
-					currentY += step.y;
-				if (min == tZ)
-					currentZ += step.z;
+				if (min == maxX)
+				{
+					currentX += stepX;
+					maxX += deltaX;
+				}
+				if (min == maxY)
+				{
+					currentY += stepY;
+					maxY += deltaY;
+				}
+				if (min == maxZ)
+				{
+					currentZ += stepZ;
+					maxZ += deltaZ;
+				}
 			}
-
-			if (dest != null && dest.equals(ray.getPointAt(min)))
-				ret = true;
-
 		}
 
 		if (firstHit == null && dest != null)
 			firstHit = new RayTraceResult(RayTraceResult.Type.MISS, dest.toVec3d(), null, new BlockPos(currentX, currentY, currentZ));
 
-		firstHit = ChunkCollision.get().getRayTraceResult(	world,
-															Pair.of(src, dest),
-															firstHit,
-															hasOption(Options.HIT_LIQUIDS),
-															hasOption(Options.CHECK_COLLISION),
-															true);
-
-		if (!ret)
+		if (snapshot != null)
+			firstHit = Raytrace.getClosestHit(Type.BLOCK, src, firstHit, snapshot.traceCollidables(this));
+		else if (dest == null || ChunkCollision.get().hasChunkCollidables(world, src.x, src.z, dest.x, dest.z))
+			firstHit = ChunkCollision.get().getRayTraceResult(	world,
+																Pair.of(src, dest),
+																firstHit,
+																hasOption(Options.HIT_LIQUIDS),
+																hasOption(Options.CHECK_COLLISION),
+																true);
+
+		//don't message from the threads of traceAll
+		if (!ret && snapshot == null)
 			MalisisCore.message("Trace fail : " + MAX_BLOCKS + " blocks passed (" + currentX + "," + currentY + "," + currentZ + ")");
 		return firstHit;
 	}
 
+	/**
+	 * Gets the distance along the ray of a {@link Point} lying on it, measured on the dominant axis of the direction.
+	 *
+	 * @param point the point
+	 * @return the distance, or <code>Double.POSITIVE_INFINITY</code> if <code>point</code> is null
+	 */
+	private double distanceTo(Point point)
+	{
+		if (point == null)
+			return Double.POSITIVE_INFINITY;
+
+		Vector d = ray.direction;
+		double ax = Math.abs(d.x), ay = Math.abs(d.y), az = Math.abs(d.z);
+		if (ax == 0 && ay == 0 && az == 0)
+			return 0;
+		if (ax >= ay && ax >= az)
+			return (point.x - src.x) / d.x;
+		if (ay >= az)
+			return (point.y - src.y) / d.y;
+		return (point.z - src.z) / d.z;
+	}
+
+	/**
+	 * Gets the {@link IBlockState} at the coordinates, reading directly from the cached {@link Chunk} and section.
+	 *
+	 * @param x the x
+	 * @param y the y
+	 * @param z the z
+	 * @return the block state
+	 */
+	private IBlockState getBlockState(int x, int y, int z)
+	{
+		if (snapshot != null)
+			return snapshot.getBlockState(x, y, z);
+		if (y < 0 || y >= 256)
+			return Blocks.AIR.getDefaultState();
+		if (world.getWorldType() == WorldType.DEBUG_ALL_BLOCK_STATES)
+			return world.getBlockState(cursor);
+
+		if (chunk == null || chunk.x != x >> 4 || chunk.z != z >> 4)
+		{
+			chunk = world.getChunkFromChunkCoords(x >> 4, z >> 4);
+			sectionY = -1;
+		}
+		if (sectionY != y >> 4)
+		{
+			sectionY = y >> 4;
+			section = chunk.getBlockStorageArray()[sectionY];
+		}
+
+		return section != Chunk.NULL_BLOCK_STORAGE ? section.get(x & 15, y & 15, z & 15) : Blocks.AIR.getDefaultState();
+	}
+
 	/**
 	 * Gets the minimum value of <code>x</code>, <code>y</code>, <code>z</code>.
 	 *
@@ -281,13 +381,50 @@ public class RaytraceWorld extends Raytrace
 	public RayTraceResult rayTraceBlock(BlockPos pos, Point exit)
 	{
 		IBlockState state = world.getBlockState(pos);
-		Block block = state.getBlock();
-		//TODO: fix getBoundingBox for IBoundingBox ?
-		if (hasOption(Options.CHECK_COLLISION) && state.getBoundingBox(world, pos) == null)
+		if (!canTrace(pos, state))
 			return null;
-		if (!block.canCollideCheck(state, hasOption(Options.HIT_LIQUIDS)))
+		return new RaytraceBlock(world, src, exit, pos, state).trace();
+	}
+
+	/**
+	 * Raytraces inside the block area at the cursor position, up to the distance <code>exit</code> along the ray.<br>
+	 * The {@link Point} and {@link BlockPos} passed to the block are only created if the block can be hit.
+	 *
+	 * @param pos the pos
+	 * @param state the state
+	 * @param exit the exit distance
+	 * @return the {@link RayTraceResult} return by block raytrace
+	 */
+	private RayTraceResult rayTraceBlock(BlockPos pos, IBlockState state, double exit)
+	{
+		if (!canTrace(pos, state))
 			return null;
-		return new RaytraceBlock(world, src, exit, pos).trace();
+		return new RaytraceBlock(blockAccess(), src, ray.getPointAt(exit), pos.toImmutable(), state).trace();
+	}
+
+	/**
+	 * Checks whether the {@link IBlockState} can be hit by this {@link RaytraceWorld}.
+	 *
+	 * @param pos the pos
+	 * @param state the state
+	 * @return true, if the block should be ray traced
+	 */
+	private boolean canTrace(BlockPos pos, IBlockState state)
+	{
+		if (!state.getBlock().canCollideCheck(state, hasOption(Options.HIT_LIQUIDS)))
+			return false;
+		//TODO: fix getBoundingBox for IBoundingBox ?
+		return !hasOption(Options.CHECK_COLLISION) || state.getBoundingBox(blockAccess(), pos) != null;
+	}
+
+	/**
+	 * Gets the {@link IBlockAccess} the blocks are read from.
+	 *
+	 * @return the snapshot if set, the world otherwise
+	 */
+	private IBlockAccess blockAccess()
+	{
+		return snapshot != null ? snapshot : world;
 	}
 
 	/**
@@ -0,0 +1,283 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.raytrace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.malisis.core.block.IBoundingBox;
+import net.malisis.core.block.IComponent;
+import net.malisis.core.util.AABBUtils;
+import net.malisis.core.util.Point;
+import net.malisis.core.util.Ray;
+import net.malisis.core.util.chunkblock.ChunkBlockHandler;
+import net.malisis.core.util.chunkblock.ChunkBlockStore;
+import net.malisis.core.util.chunkcollision.IChunkCollidable;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.RayTraceResult.Type;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Read-only copy of the block states of the chunk sections crossed by a set of {@link Ray rays}.<br>
+ * The snapshot is captured on the thread owning the {@link World}, and can then be read from any thread.<br>
+ * The ray trace bounding boxes of the {@link IChunkCollidable} blocks registered for the captured chunks are resolved during the capture
+ * as well, so they can be traced without going through the {@link ChunkBlockHandler}.
+ *
+ * @author Ordinastie
+ */
+class RegionSnapshot implements IBlockAccess
+{
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+
+	/** World the snapshot was captured from. */
+	private final World world;
+	/** Block states of the captured sections, indexed by {@link #key(int, int, int)}. */
+	private final TLongObjectHashMap<IBlockState[]> sections = new TLongObjectHashMap<>();
+	/** Positions of the {@link IChunkCollidable} blocks. */
+	private final BlockPos[] collidables;
+	/** Ray trace bounding boxes of the {@link IChunkCollidable} blocks, offset to their position. */
+	private final AxisAlignedBB[][] collidableBoxes;
+
+	/**
+	 * Captures the sections crossed by the rays. Each ray goes from its origin to <code>origin + direction</code>.
+	 *
+	 * @param world the world
+	 * @param rays the rays
+	 */
+	RegionSnapshot(World world, List<Ray> rays)
+	{
+		this.world = world;
+
+		TLongSet chunks = new TLongHashSet();
+		TLongSet visited = new TLongHashSet();
+		for (Ray ray : rays)
+		{
+			Point src = ray.origin;
+			Point dest = ray.getPointAt(1);
+			int minX = MathHelper.floor(Math.min(src.x, dest.x)) >> 4;
+			int maxX = MathHelper.floor(Math.max(src.x, dest.x)) >> 4;
+			int minY = MathHelper.clamp(MathHelper.floor(Math.min(src.y, dest.y)), 0, 255) >> 4;
+			int maxY = MathHelper.clamp(MathHelper.floor(Math.max(src.y, dest.y)), 0, 255) >> 4;
+			int minZ = MathHelper.floor(Math.min(src.z, dest.z)) >> 4;
+			int maxZ = MathHelper.floor(Math.max(src.z, dest.z)) >> 4;
+
+			for (int cx = minX; cx <= maxX; cx++)
+			{
+				for (int cz = minZ; cz <= maxZ; cz++)
+				{
+					Chunk chunk = world.getChunkProvider().getLoadedChunk(cx, cz);
+					if (chunk == null)
+						continue;
+					chunks.add(ChunkPos.asLong(cx, cz));
+					for (int sy = minY; sy <= maxY; sy++)
+					{
+						if (visited.add(key(cx, sy, cz)))
+							capture(chunk, sy);
+					}
+				}
+			}
+		}
+
+		List<BlockPos> positions = new ArrayList<>();
+		List<AxisAlignedBB[]> boxes = new ArrayList<>();
+		resolveCollidables(chunks, positions, boxes);
+		collidables = positions.toArray(new BlockPos[0]);
+		collidableBoxes = boxes.toArray(new AxisAlignedBB[0][]);
+	}
+
+	/**
+	 * Gets the {@link World} this {@link RegionSnapshot} was captured from.<br>
+	 * The world should not be accessed outside of its own thread.
+	 *
+	 * @return the world
+	 */
+	World getWorld()
+	{
+		return world;
+	}
+
+	private void capture(Chunk chunk, int sy)
+	{
+		ExtendedBlockStorage storage = chunk.getBlockStorageArray()[sy];
+		if (storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty())
+			return;
+
+		IBlockState[] states = new IBlockState[4096];
+		for (int y = 0; y < 16; y++)
+			for (int z = 0; z < 16; z++)
+				for (int x = 0; x < 16; x++)
+					states[y << 8 | z << 4 | x] = storage.get(x, y, z);
+		sections.put(key(chunk.x, sy, chunk.z), states);
+	}
+
+	private void resolveCollidables(TLongSet chunks, List<BlockPos> positions, List<AxisAlignedBB[]> boxes)
+	{
+		ChunkBlockStore store = ChunkBlockHandler.get().store(world);
+		TLongSet coords = new TLongHashSet();
+		for (TLongIterator it = chunks.iterator(); it.hasNext();)
+		{
+			long chunk = it.next();
+			coords.addAll(store.get((int) chunk, (int) (chunk >> 32)));
+		}
+
+		for (TLongIterator it = coords.iterator(); it.hasNext();)
+		{
+			BlockPos pos = BlockPos.fromLong(it.next());
+			if (!world.isBlockLoaded(pos))
+				continue;
+
+			IBlockState state = world.getBlockState(pos);
+			if (IComponent.getComponent(IChunkCollidable.class, state.getBlock()) == null)
+				continue;
+
+			AxisAlignedBB[] aabbs;
+			if (state.getBlock() instanceof IBoundingBox)
+				aabbs = ((IBoundingBox) state.getBlock()).getRayTraceBoundingBox(world, pos, state);
+			else
+				aabbs = new AxisAlignedBB[] { state.getBoundingBox(world, pos) };
+			positions.add(pos);
+			boxes.add(AABBUtils.offset(pos, aabbs));
+		}
+	}
+
+	/**
+	 * Gets the packed key of a section.
+	 *
+	 * @param sectionX the section X
+	 * @param sectionY the section Y
+	 * @param sectionZ the section Z
+	 * @return the key
+	 */
+	private static long key(int sectionX, int sectionY, int sectionZ)
+	{
+		return (sectionX & 0x3FFFFFL) << 26 | (sectionZ & 0x3FFFFFL) << 4 | (sectionY & 15);
+	}
+
+	/**
+	 * Gets the {@link IBlockState} at the coordinates.<br>
+	 * Blocks outside of the captured sections are air.
+	 *
+	 * @param x the x
+	 * @param y the y
+	 * @param z the z
+	 * @return the block state
+	 */
+	IBlockState getBlockState(int x, int y, int z)
+	{
+		if (y < 0 || y >= 256)
+			return AIR;
+		IBlockState[] states = sections.get(key(x >> 4, y >> 4, z >> 4));
+		return states != null ? states[(y & 15) << 8 | (z & 15) << 4 | (x & 15)] : AIR;
+	}
+
+	/**
+	 * Traces the {@link IChunkCollidable} blocks captured by this {@link RegionSnapshot}.
+	 *
+	 * @param raytrace the raytrace
+	 * @return the closest hit, or null
+	 */
+	RayTraceResult traceCollidables(Raytrace raytrace)
+	{
+		RayTraceResult result = null;
+		for (int i = 0; i < collidables.length; i++)
+		{
+			Pair<EnumFacing, Point> hit = raytrace.trace(collidableBoxes[i]);
+			if (hit != null)
+				result = Raytrace.getClosestHit(Type.BLOCK,
+												raytrace.getSource(),
+												result,
+												new RayTraceResult(hit.getRight().toVec3d(), hit.getLeft(), collidables[i]));
+		}
+		return result;
+	}
+
+	@Override
+	public TileEntity getTileEntity(BlockPos pos)
+	{
+		return null;
+	}
+
+	@Override
+	public int getCombinedLight(BlockPos pos, int lightValue)
+	{
+		return 0;
+	}
+
+	@Override
+	public IBlockState getBlockState(BlockPos pos)
+	{
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	public boolean isAirBlock(BlockPos pos)
+	{
+		IBlockState state = getBlockState(pos);
+		return state.getBlock().isAir(state, this, pos);
+	}
+
+	@Override
+	public Biome getBiome(BlockPos pos)
+	{
+		return null;
+	}
+
+	@Override
+	public int getStrongPower(BlockPos pos, EnumFacing direction)
+	{
+		return 0;
+	}
+
+	@Override
+	public WorldType getWorldType()
+	{
+		return world.getWorldType();
+	}
+
+	@Override
+	public boolean isSideSolid(BlockPos pos, EnumFacing side, boolean _default)
+	{
+		return getBlockState(pos).isSideSolid(this, pos, side);
+	}
+}
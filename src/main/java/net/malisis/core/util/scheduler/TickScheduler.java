@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.scheduler;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.malisis.core.block.MalisisBlock;
+import net.malisis.core.block.component.ITickableComponent.PeriodicTickableComponent;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.util.Constants.NBT;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Server only.<br>
+ * {@link TickScheduler} schedules the updates of the {@link PeriodicTickableComponent PeriodicTickableComponents}, instead of going
+ * through the world pending ticks.<br>
+ * Each world holds a {@link TickWheel}, so scheduling and expiring a tick is O(1), and the ticks of a chunk are dropped at once when it
+ * unloads. Pending ticks are saved in the chunk NBT as pairs of local position and remaining delay.
+ *
+ * @author Ordinastie
+ */
+@AutoLoad
+public class TickScheduler
+{
+	/** Key of the pending ticks in the chunk NBT. */
+	private static final String NBT_KEY = "MalisisTicks";
+	private static TickScheduler instance = new TickScheduler();
+
+	private Map<World, TickWheel> wheels = new WeakHashMap<>();
+
+	private TickScheduler()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	private TickWheel wheel(World world)
+	{
+		return wheels.computeIfAbsent(world, w -> new TickWheel());
+	}
+
+	/**
+	 * Schedules an update for the {@link MalisisBlock} at the position.<br>
+	 * If an update is already scheduled, it is replaced.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @param delay the delay, in ticks
+	 */
+	public void schedule(World world, BlockPos pos, int delay)
+	{
+		if (world.isRemote || world.isOutsideBuildHeight(pos))
+			return;
+
+		wheel(world).schedule(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), TickWheel.local(pos.getX(), pos.getY(), pos.getZ()), delay);
+	}
+
+	/**
+	 * Checks whether an update is scheduled for the position.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @return true, if scheduled
+	 */
+	public boolean isScheduled(World world, BlockPos pos)
+	{
+		TickWheel wheel = wheels.get(world);
+		return wheel != null && wheel.isScheduled(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), TickWheel.local(pos.getX(), pos.getY(), pos.getZ()));
+	}
+
+	/**
+	 * Cancels the update scheduled for the position.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 */
+	public void cancel(World world, BlockPos pos)
+	{
+		TickWheel wheel = wheels.get(world);
+		if (wheel != null)
+			wheel.cancel(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), TickWheel.local(pos.getX(), pos.getY(), pos.getZ()));
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event)
+	{
+		if (event.phase != TickEvent.Phase.END || event.world.isRemote)
+			return;
+
+		TickWheel wheel = wheels.get(event.world);
+		if (wheel == null)
+			return;
+
+		World world = event.world;
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		wheel.advance((chunkPos, local) -> {
+			Chunk chunk = world.getChunkProvider().getLoadedChunk((int) chunkPos, (int) (chunkPos >> 32));
+			if (chunk == null)
+				return;
+
+			pos.setPos(chunk.x << 4 | local & 15, local >> 8, chunk.z << 4 | local >> 4 & 15);
+			IBlockState state = chunk.getBlockState(pos);
+			if (state.getBlock() instanceof MalisisBlock)
+				state.getBlock().updateTick(world, pos.toImmutable(), state, world.rand);
+		});
+	}
+
+	@SubscribeEvent
+	public void onDataLoad(ChunkDataEvent.Load event)
+	{
+		if (event.getWorld().isRemote || !event.getData().hasKey(NBT_KEY, NBT.TAG_INT_ARRAY))
+			return;
+
+		Chunk chunk = event.getChunk();
+		wheel(event.getWorld()).load(ChunkPos.asLong(chunk.x, chunk.z), event.getData().getIntArray(NBT_KEY));
+	}
+
+	@SubscribeEvent
+	public void onDataSave(ChunkDataEvent.Save event)
+	{
+		TickWheel wheel = wheels.get(event.getWorld());
+		if (wheel == null)
+			return;
+
+		Chunk chunk = event.getChunk();
+		int[] data = wheel.save(ChunkPos.asLong(chunk.x, chunk.z));
+		NBTTagCompound nbt = event.getData();
+		if (data != null)
+			nbt.setIntArray(NBT_KEY, data);
+
+		//server chunks are saved after ChunkEvent.Unload, so drop the ticks only once written
+		if (!chunk.isLoaded())
+			wheel.unload(ChunkPos.asLong(chunk.x, chunk.z));
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		wheels.remove(event.getWorld());
+	}
+
+	/**
+	 * Gets the {@link TickScheduler} instance.
+	 *
+	 * @return the tick scheduler
+	 */
+	public static TickScheduler get()
+	{
+		return instance;
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.core.util.scheduler;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Hierarchical timing wheel holding the pending ticks of a world, grouped by chunk.<br>
+ * Three levels of 256, 64 and 64 slots cover delays up to 2<sup>20</sup> ticks. Inserting and expiring a tick is O(1); entries of the
+ * upper levels are moved down a level when their slot comes up.
+ *
+ * <p>
+ * The pending ticks of each chunk are kept in a map of local position to due tick, which is the reference: wheel entries that no longer
+ * match it (rescheduled, or chunk unloaded) are simply skipped when they expire, so a chunk can be dropped in one operation.
+ *
+ * @author Ordinastie
+ */
+class TickWheel
+{
+	private static final int LEVEL0_BITS = 8;
+	private static final int LEVEL_BITS = 6;
+	private static final int LEVEL1_SHIFT = LEVEL0_BITS;
+	private static final int LEVEL2_SHIFT = LEVEL0_BITS + LEVEL_BITS;
+	/** Longest delay the wheel can hold. Longer delays are clamped. */
+	static final int MAX_DELAY = (1 << (LEVEL2_SHIFT + LEVEL_BITS)) - 1;
+
+	private final Bucket[] level0 = buckets(1 << LEVEL0_BITS);
+	private final Bucket[] level1 = buckets(1 << LEVEL_BITS);
+	private final Bucket[] level2 = buckets(1 << LEVEL_BITS);
+	/** Pending ticks for each chunk : local position -> due tick. */
+	private final TLongObjectHashMap<TIntLongHashMap> pending = new TLongObjectHashMap<>();
+	/** Empty bucket swapped with the slot being processed. */
+	private Bucket spare = new Bucket();
+	/** Current tick of the wheel. */
+	private long now = 0;
+
+	private static Bucket[] buckets(int size)
+	{
+		Bucket[] buckets = new Bucket[size];
+		for (int i = 0; i < size; i++)
+			buckets[i] = new Bucket();
+		return buckets;
+	}
+
+	/**
+	 * Packs the position inside its chunk.
+	 *
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @param z the z coordinate
+	 * @return the local position
+	 */
+	static int local(int x, int y, int z)
+	{
+		return (y & 0xFF) << 8 | (z & 15) << 4 | x & 15;
+	}
+
+	/**
+	 * Schedules a tick for the position.<br>
+	 * If a tick is already pending for that position, it is replaced.
+	 *
+	 * @param chunk the chunk
+	 * @param local the local position
+	 * @param delay the delay, in ticks
+	 */
+	void schedule(long chunk, int local, int delay)
+	{
+		long due = now + Math.max(1, Math.min(delay, MAX_DELAY));
+		TIntLongHashMap ticks = pending.get(chunk);
+		if (ticks == null)
+		{
+			ticks = new TIntLongHashMap();
+			pending.put(chunk, ticks);
+		}
+		ticks.put(local, due);
+		insert(chunk, local, due);
+	}
+
+	/**
+	 * Checks whether a tick is pending for the position.
+	 *
+	 * @param chunk the chunk
+	 * @param local the local position
+	 * @return true, if scheduled
+	 */
+	boolean isScheduled(long chunk, int local)
+	{
+		TIntLongHashMap ticks = pending.get(chunk);
+		return ticks != null && ticks.containsKey(local);
+	}
+
+	/**
+	 * Cancels the pending tick for the position.
+	 *
+	 * @param chunk the chunk
+	 * @param local the local position
+	 */
+	void cancel(long chunk, int local)
+	{
+		TIntLongHashMap ticks = pending.get(chunk);
+		if (ticks != null)
+		{
+			ticks.remove(local);
+			if (ticks.isEmpty())
+				pending.remove(chunk);
+		}
+	}
+
+	/**
+	 * Drops all the pending ticks of the chunk.
+	 *
+	 * @param chunk the chunk
+	 */
+	void unload(long chunk)
+	{
+		pending.remove(chunk);
+	}
+
+	/**
+	 * Gets the pending ticks of the chunk, as pairs of local position and remaining delay.
+	 *
+	 * @param chunk the chunk
+	 * @return the ticks, or null if none are pending
+	 */
+	int[] save(long chunk)
+	{
+		TIntLongHashMap ticks = pending.get(chunk);
+		if (ticks == null || ticks.isEmpty())
+			return null;
+
+		int[] data = new int[ticks.size() * 2];
+		int[] i = { 0 };
+		ticks.forEachEntry((local, due) -> {
+			data[i[0]++] = local;
+			data[i[0]++] = (int) (due - now);
+			return true;
+		});
+		return data;
+	}
+
+	/**
+	 * Schedules the ticks saved with {@link #save(long)}.
+	 *
+	 * @param chunk the chunk
+	 * @param data the data
+	 */
+	void load(long chunk, int[] data)
+	{
+		for (int i = 0; i + 1 < data.length; i += 2)
+			schedule(chunk, data[i], data[i + 1]);
+	}
+
+	private void insert(long chunk, int local, long due)
+	{
+		long delay = due - now;
+		if (delay < 1 << LEVEL1_SHIFT)
+			level0[(int) (due & level0.length - 1)].add(chunk, local, due);
+		else if (delay < 1 << LEVEL2_SHIFT)
+			level1[(int) (due >> LEVEL1_SHIFT & level1.length - 1)].add(chunk, local, due);
+		else
+			level2[(int) (due >> LEVEL2_SHIFT & level2.length - 1)].add(chunk, local, due);
+	}
+
+	/**
+	 * Advances the wheel by one tick and passes the ticks that are due to the consumer.<br>
+	 * Ticks scheduled by the consumer are never processed in the same call.
+	 *
+	 * @param consumer the consumer
+	 */
+	void advance(TickConsumer consumer)
+	{
+		now++;
+		if ((now & (1 << LEVEL2_SHIFT) - 1) == 0)
+			cascade(level2, (int) (now >> LEVEL2_SHIFT & level2.length - 1));
+		if ((now & (1 << LEVEL1_SHIFT) - 1) == 0)
+			cascade(level1, (int) (now >> LEVEL1_SHIFT & level1.length - 1));
+
+		Bucket expired = swap(level0, (int) (now & level0.length - 1));
+		for (int i = 0; i < expired.size(); i++)
+		{
+			long chunk = expired.chunks.getQuick(i);
+			int local = expired.positions.getQuick(i);
+			TIntLongHashMap ticks = pending.get(chunk);
+			if (ticks == null || ticks.get(local) != now)
+				continue;
+
+			ticks.remove(local);
+			if (ticks.isEmpty())
+				pending.remove(chunk);
+			consumer.tick(chunk, local);
+		}
+		release(expired);
+	}
+
+	/**
+	 * Replaces the bucket in the slot with the spare one, so that entries added while processing it go into a fresh bucket.
+	 *
+	 * @param level the level
+	 * @param slot the slot
+	 * @return the bucket
+	 */
+	private Bucket swap(Bucket[] level, int slot)
+	{
+		Bucket bucket = level[slot];
+		if (bucket.size() == 0)
+			return bucket;
+
+		level[slot] = spare;
+		spare = null;
+		return bucket;
+	}
+
+	private void release(Bucket bucket)
+	{
+		if (spare != null)
+			return;
+		bucket.clear();
+		spare = bucket;
+	}
+
+	private void cascade(Bucket[] level, int slot)
+	{
+		Bucket entries = swap(level, slot);
+		for (int i = 0; i < entries.size(); i++)
+		{
+			long chunk = entries.chunks.getQuick(i);
+			int local = entries.positions.getQuick(i);
+			long due = entries.dues.getQuick(i);
+			//skip stale entries now rather than carrying them down
+			TIntLongHashMap ticks = pending.get(chunk);
+			if (ticks != null && ticks.get(local) == due)
+				insert(chunk, local, due);
+		}
+		release(entries);
+	}
+
+	@FunctionalInterface
+	interface TickConsumer
+	{
+		public void tick(long chunk, int local);
+	}
+
+	/**
+	 * Entries of a wheel slot, stored in parallel lists.
+	 */
+	private static class Bucket
+	{
+		private final TLongArrayList chunks;
+		private final TIntArrayList positions;
+		private final TLongArrayList dues;
+
+		private Bucket()
+		{
+			chunks = new TLongArrayList();
+			positions = new TIntArrayList();
+			dues = new TLongArrayList();
+		}
+
+		private int size()
+		{
+			return chunks.size();
+		}
+
+		private void add(long chunk, int local, long due)
+		{
+			chunks.add(chunk);
+			positions.add(local);
+			dues.add(due);
+		}
+
+		private void clear()
+		{
+			chunks.resetQuick();
+			positions.resetQuick();
+			dues.resetQuick();
+		}
+	}
+}